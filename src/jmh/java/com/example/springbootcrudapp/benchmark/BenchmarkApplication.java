@@ -0,0 +1,49 @@
+package com.example.springbootcrudapp.benchmark;
+
+import com.example.springbootcrudapp.SpringBootCrudAppApplication;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Starts the real application context without the web server, on a private in-memory database, so the
+ * benchmarks measure the same wiring and configuration as production. Properties are passed as command line
+ * arguments, so that they override {@code application.yaml}.
+ */
+final class BenchmarkApplication {
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start(String... properties) {
+        return start(WebApplicationType.NONE, properties);
+    }
+
+    /**
+     * Starts the application with its web server on a random port, see {@link #port}.
+     */
+    static ConfigurableApplicationContext startWeb(String... properties) {
+        return start(WebApplicationType.SERVLET, properties);
+    }
+
+    static int port(ConfigurableApplicationContext context) {
+        return context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+    }
+
+    private static ConfigurableApplicationContext start(WebApplicationType webApplicationType, String... properties) {
+        return new SpringApplicationBuilder(SpringBootCrudAppApplication.class)
+                .web(webApplicationType)
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false)
+                .run(Stream.concat(
+                        Stream.of("spring.datasource.url=jdbc:h2:mem:benchmark-" + UUID.randomUUID(),
+                                "server.port=0",
+                                "logging.level.root=warn"),
+                        Stream.of(properties))
+                        .map(property -> "--" + property)
+                        .toArray(String[]::new));
+    }
+}
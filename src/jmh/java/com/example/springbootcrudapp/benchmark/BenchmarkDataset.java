@@ -0,0 +1,46 @@
+package com.example.springbootcrudapp.benchmark;
+
+import com.example.springbootcrudapp.model.Product;
+import com.example.springbootcrudapp.repository.ProductRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Deterministic product datasets: the same row count always produces the same ids, names and prices.
+ */
+final class BenchmarkDataset {
+    private static final long SEED = 42;
+    private static final int CHUNK_SIZE = 1000;
+
+    private BenchmarkDataset() {
+    }
+
+    static List<Product> products(int rows) {
+        Random random = new Random(SEED);
+        List<Product> products = new ArrayList<>(rows);
+
+        for (int i = 0; i < rows; i++) {
+            products.add(Product.builder()
+                    .id(new UUID(random.nextLong(), random.nextLong()))
+                    .version(1L)
+                    .productName("product-" + i)
+                    .manufacturer("manufacturer-" + (i % 100))
+                    .price(random.nextInt(1_000_000) / 100.0)
+                    .build());
+        }
+
+        return products;
+    }
+
+    static void load(ProductRepository productRepository, List<Product> products) {
+        productRepository.inBatch(writer -> {
+            for (int from = 0; from < products.size(); from += CHUNK_SIZE)
+                writer.createProducts(products.subList(from, Math.min(from + CHUNK_SIZE, products.size())));
+
+            return null;
+        });
+    }
+}
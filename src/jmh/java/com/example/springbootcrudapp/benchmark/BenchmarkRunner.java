@@ -0,0 +1,84 @@
+package com.example.springbootcrudapp.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Runs the benchmarks selected on the command line, writes the results to {@code target/jmh-result.json} and
+ * fails when any benchmark that is also in the baseline got worse by more than the tolerance.
+ */
+public final class BenchmarkRunner {
+    private static final String RESULT_FILE = "target/jmh-result.json";
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .resultFormat(ResultFormatType.JSON)
+                .result(RESULT_FILE)
+                .build();
+
+        new Runner(options).run();
+
+        File baseline = new File(System.getProperty("benchmark.baseline", "src/jmh/resources/jmh-baseline.json"));
+        double tolerance = Double.parseDouble(System.getProperty("benchmark.tolerance", "0.25"));
+
+        if (baseline.exists() && regressions(baseline, new File(RESULT_FILE), tolerance) > 0)
+            System.exit(1);
+    }
+
+    private static int regressions(File baselineFile, File resultFile, double tolerance) throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        Map<String, JsonNode> baseline = index(objectMapper.readTree(baselineFile));
+        Map<String, JsonNode> results = index(objectMapper.readTree(resultFile));
+        int regressions = 0;
+
+        for (Map.Entry<String, JsonNode> result : results.entrySet()) {
+            JsonNode expected = baseline.get(result.getKey());
+
+            if (expected == null)
+                continue;
+
+            double expectedScore = expected.at("/primaryMetric/score").asDouble();
+            double actualScore = result.getValue().at("/primaryMetric/score").asDouble();
+            boolean higherIsBetter = "thrpt".equals(result.getValue().get("mode").asText());
+            double change = (actualScore - expectedScore) / expectedScore;
+            boolean regressed = higherIsBetter ? change < -tolerance : change > tolerance;
+
+            System.out.printf("%-10s %-90s baseline %12.3f actual %12.3f %s (%+.1f%%)%n",
+                    regressed ? "REGRESSED" : "ok", result.getKey(), expectedScore, actualScore,
+                    result.getValue().at("/primaryMetric/scoreUnit").asText(), change * 100);
+
+            if (regressed)
+                regressions++;
+        }
+
+        return regressions;
+    }
+
+    private static Map<String, JsonNode> index(JsonNode runs) {
+        Map<String, JsonNode> index = new TreeMap<>();
+
+        for (JsonNode run : runs) {
+            StringBuilder key = new StringBuilder(run.get("benchmark").asText());
+            Map<String, String> params = new TreeMap<>();
+            run.path("params").fields().forEachRemaining(param -> params.put(param.getKey(), param.getValue().asText()));
+            params.forEach((name, value) -> key.append(' ').append(name).append('=').append(value));
+            index.put(key.toString(), run);
+        }
+
+        return index;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.springbootcrudapp.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The requests bots send, through the real dispatcher servlet but without a network in between: an id that
+ * does not exist (404), an id that is not a UUID and a page limit out of range (both 400). Run with
+ * {@code -prof gc} to see the allocation per request. MockMvc does not forward errors to the error page, so a
+ * response left to {@code sendError} costs more in a server than measured here.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ErrorPathBenchmark {
+    private ConfigurableApplicationContext context;
+    private MockMvc mvc;
+    private RequestBuilder missingProduct;
+    private RequestBuilder malformedId;
+    private RequestBuilder invalidLimit;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.startWeb();
+        mvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context).build();
+
+        missingProduct = MockMvcRequestBuilders.get("/products/{id}", UUID.randomUUID());
+        malformedId = MockMvcRequestBuilders.get("/products/not-a-uuid");
+        invalidLimit = MockMvcRequestBuilders.get("/products").param("limit", "0");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int getMissingProduct() throws Exception {
+        return mvc.perform(missingProduct).andReturn().getResponse().getStatus();
+    }
+
+    @Benchmark
+    public int getMalformedId() throws Exception {
+        return mvc.perform(malformedId).andReturn().getResponse().getStatus();
+    }
+
+    @Benchmark
+    public int getInvalidLimit() throws Exception {
+        return mvc.perform(invalidLimit).andReturn().getResponse().getStatus();
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.springbootcrudapp.benchmark;
+
+import com.example.springbootcrudapp.model.Product;
+import com.example.springbootcrudapp.repository.ProductRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test over HTTP: many concurrent clients reading products by id, with Tomcat's own thread pool against
+ * the virtual-thread execution mode. Throughput and the latency distribution are reported per mode; a
+ * rejected (429) response counts as a completed operation, so check {@code product.requests.rejected} too.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Threads(256)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class ExecutionModeLoadBenchmark {
+    private static final int ROWS = 100_000;
+
+    @Param({"default", "virtual-threads"})
+    private String mode;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient httpClient;
+    private List<Product> products;
+    private String baseUri;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.startWeb("product.cache.maximum-size=0", "product.execution.mode=" + mode);
+        products = BenchmarkDataset.products(ROWS);
+        BenchmarkDataset.load(context.getBean(ProductRepository.class), products);
+
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        baseUri = "http://localhost:" + BenchmarkApplication.port(context) + "/products/";
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int getProductById() throws IOException, InterruptedException {
+        UUID id = products.get(ThreadLocalRandom.current().nextInt(products.size())).getId();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUri + id)).GET().build();
+
+        return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
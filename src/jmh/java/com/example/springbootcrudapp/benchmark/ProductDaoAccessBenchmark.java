@@ -0,0 +1,63 @@
+package com.example.springbootcrudapp.benchmark;
+
+import com.example.springbootcrudapp.dao.ProductDao;
+import com.example.springbootcrudapp.model.Product;
+import com.example.springbootcrudapp.repository.ProductRepository;
+import org.jdbi.v3.core.Jdbi;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A single lookup through a SqlObject attached for the call, as the repository used to do, against the shared
+ * on-demand {@link ProductDao} it uses now. Run with {@code -prof gc} to compare the allocation per call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ProductDaoAccessBenchmark {
+    @Param({"1000"})
+    private int rows;
+
+    private ConfigurableApplicationContext context;
+    private Jdbi jdbi;
+    private ProductDao productDao;
+    private List<Product> products;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("product.cache.maximum-size=0");
+        jdbi = context.getBean(Jdbi.class);
+        productDao = context.getBean(ProductDao.class);
+        products = BenchmarkDataset.products(rows);
+        BenchmarkDataset.load(context.getBean(ProductRepository.class), products);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<Product> withExtension() {
+        UUID id = randomProduct().getId();
+        return jdbi.withExtension(ProductDao.class, dao -> dao.getProductById(id));
+    }
+
+    @Benchmark
+    public Optional<Product> onDemand() {
+        return productDao.getProductById(randomProduct().getId());
+    }
+
+    private Product randomProduct() {
+        return products.get(ThreadLocalRandom.current().nextInt(products.size()));
+    }
+}
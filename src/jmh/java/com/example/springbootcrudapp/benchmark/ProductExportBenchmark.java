@@ -0,0 +1,116 @@
+package com.example.springbootcrudapp.benchmark;
+
+import com.example.springbootcrudapp.export.CsvProductExporter;
+import com.example.springbootcrudapp.export.JacksonProductExporter;
+import com.example.springbootcrudapp.repository.ProductRepository;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A full catalog export from H2 in each format GET /products negotiates, against the previous path that
+ * mapped every row to a {@code Product} and serialized it through the object mapper ({@code mapped-json}).
+ * The payload size of each format is printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ProductExportBenchmark {
+    @Param({"100000"})
+    private int rows;
+
+    @Param({"mapped-json", "json", "smile", "cbor", "csv"})
+    private String format;
+
+    private ConfigurableApplicationContext context;
+    private ProductRepository productRepository;
+    private ObjectMapper objectMapper;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = BenchmarkApplication.start("product.cache.maximum-size=0");
+        productRepository = context.getBean(ProductRepository.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+        BenchmarkDataset.load(productRepository, BenchmarkDataset.products(rows));
+
+        CountingOutputStream counter = new CountingOutputStream();
+        export(counter);
+        System.out.printf("%n%s payload: %d bytes%n", format, counter.count);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void export() throws IOException {
+        export(OutputStream.nullOutputStream());
+    }
+
+    private void export(OutputStream outputStream) throws IOException {
+        switch (format) {
+            case "mapped-json":
+                try (JsonGenerator generator = objectMapper.createGenerator(outputStream)) {
+                    generator.writeStartArray();
+                    productRepository.forEachProduct(null, product -> {
+                        try {
+                            generator.writeObject(product);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                    generator.writeEndArray();
+                }
+                break;
+            case "csv":
+                productRepository.scanProducts(null, new CsvProductExporter(
+                        new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8))));
+                break;
+            default:
+                try (JsonGenerator generator = jsonFactory().createGenerator(outputStream)) {
+                    productRepository.scanProducts(null, new JacksonProductExporter(generator));
+                }
+        }
+    }
+
+    private JsonFactory jsonFactory() {
+        switch (format) {
+            case "smile":
+                return new SmileFactory();
+            case "cbor":
+                return new CBORFactory();
+            default:
+                return objectMapper.getFactory();
+        }
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.springbootcrudapp.benchmark;
+
+import com.example.springbootcrudapp.id.ProductIdGenerator;
+import com.example.springbootcrudapp.model.Product;
+import com.example.springbootcrudapp.repository.ProductRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Id generation alone, and chunks of inserts into a table that already holds {@code rows} products created
+ * with the same generator. Each trial also prints how many consecutive ids were larger than their
+ * predecessor in index order: close to 100% means inserts append to the primary key index, around 50% means
+ * they land all over it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ProductIdBenchmark {
+    private static final int CHUNK_SIZE = 1000;
+
+    @Param({"100000"})
+    private int rows;
+
+    @Param({"random", "time-ordered"})
+    private String generator;
+
+    private ConfigurableApplicationContext context;
+    private ProductRepository productRepository;
+    private ProductIdGenerator productIdGenerator;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("product.cache.maximum-size=0", "product.id.generator=" + generator);
+        productRepository = context.getBean(ProductRepository.class);
+        productIdGenerator = context.getBean(ProductIdGenerator.class);
+
+        List<Product> products = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++)
+            products.add(newProduct(i));
+
+        BenchmarkDataset.load(productRepository, products);
+        System.out.printf("%n%s ids in index order: %.1f%%%n", generator, 100 * ascendingRatio(products));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public UUID generate() {
+        return productIdGenerator.nextId();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CHUNK_SIZE)
+    public void insert() {
+        List<Product> chunk = new ArrayList<>(CHUNK_SIZE);
+        for (int i = 0; i < CHUNK_SIZE; i++)
+            chunk.add(newProduct(i));
+
+        BenchmarkDataset.load(productRepository, chunk);
+    }
+
+    private Product newProduct(int i) {
+        return Product.builder()
+                .id(productIdGenerator.nextId())
+                .version(1)
+                .productName("product-" + i)
+                .manufacturer("manufacturer-" + (i % 100))
+                .priceMinor(i)
+                .build();
+    }
+
+    private static double ascendingRatio(List<Product> products) {
+        int ascending = 0;
+
+        for (int i = 1; i < products.size(); i++)
+            if (products.get(i - 1).getId().toString().compareTo(products.get(i).getId().toString()) < 0)
+                ascending++;
+
+        return (double) ascending / (products.size() - 1);
+    }
+}
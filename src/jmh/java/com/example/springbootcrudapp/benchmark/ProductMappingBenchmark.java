@@ -0,0 +1,57 @@
+package com.example.springbootcrudapp.benchmark;
+
+import com.example.springbootcrudapp.dao.ProductDao;
+import com.example.springbootcrudapp.model.Product;
+import com.example.springbootcrudapp.repository.ProductRepository;
+import org.jdbi.v3.core.Jdbi;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning rows into {@link Product} beans through the DAO's registered mapper, against mapping the
+ * same rows to plain maps as a floor.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ProductMappingBenchmark {
+    private static final int ROWS = 1000;
+
+    @Param({"100", "1000"})
+    private int pageSize;
+
+    private ConfigurableApplicationContext context;
+    private Jdbi jdbi;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        jdbi = context.getBean(Jdbi.class);
+        BenchmarkDataset.load(context.getBean(ProductRepository.class), BenchmarkDataset.products(ROWS));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Product> mapProducts() {
+        return jdbi.withExtension(ProductDao.class, productDao -> productDao.getFirstProducts(pageSize));
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> mapRows() {
+        return jdbi.withHandle(handle -> handle.createQuery("SELECT * FROM products ORDER BY products.id LIMIT :limit")
+                .bind("limit", pageSize)
+                .mapToMap()
+                .list());
+    }
+}
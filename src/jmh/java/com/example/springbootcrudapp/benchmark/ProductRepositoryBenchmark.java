@@ -0,0 +1,65 @@
+package com.example.springbootcrudapp.benchmark;
+
+import com.example.springbootcrudapp.model.Product;
+import com.example.springbootcrudapp.repository.ProductRepository;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Repository calls against H2 with the product cache disabled, so every call reaches the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ProductRepositoryBenchmark {
+    private static final int PAGE_SIZE = 100;
+
+    @Param({"1000", "100000", "1000000"})
+    private int rows;
+
+    private ConfigurableApplicationContext context;
+    private ProductRepository productRepository;
+    private List<Product> products;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("product.cache.maximum-size=0");
+        productRepository = context.getBean(ProductRepository.class);
+        products = BenchmarkDataset.products(rows);
+        BenchmarkDataset.load(productRepository, products);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<Product> getProductById() {
+        return productRepository.getProductById(randomProduct().getId());
+    }
+
+    @Benchmark
+    public List<Product> getProductPage() {
+        return productRepository.getProducts(randomProduct().getId(), PAGE_SIZE);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void forEachProduct(Blackhole blackhole) {
+        productRepository.forEachProduct(null, blackhole::consume);
+    }
+
+    private Product randomProduct() {
+        return products.get(ThreadLocalRandom.current().nextInt(products.size()));
+    }
+}
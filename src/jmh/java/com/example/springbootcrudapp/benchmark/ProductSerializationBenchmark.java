@@ -0,0 +1,53 @@
+package com.example.springbootcrudapp.benchmark;
+
+import com.example.springbootcrudapp.model.Product;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of large product listings, both as one {@code List<Product>} and element by
+ * element the way the streaming GET /products writes them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ProductSerializationBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    private int rows;
+
+    private ObjectMapper objectMapper;
+    private List<Product> products;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        products = BenchmarkDataset.products(rows);
+    }
+
+    @Benchmark
+    public void writeList() throws IOException {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), products);
+    }
+
+    @Benchmark
+    public void writeStream() throws IOException {
+        try (JsonGenerator generator = objectMapper.createGenerator(OutputStream.nullOutputStream())) {
+            generator.writeStartArray();
+
+            for (Product product : products)
+                generator.writeObject(product);
+
+            generator.writeEndArray();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.springbootcrudapp.benchmark;
+
+import com.example.springbootcrudapp.model.Product;
+import com.example.springbootcrudapp.repository.ProductRepository;
+import com.example.springbootcrudapp.service.ProductService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ProductServiceBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    private int rows;
+
+    private ConfigurableApplicationContext context;
+    private ProductService productService;
+    private List<Product> products;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        productService = context.getBean(ProductService.class);
+        products = BenchmarkDataset.products(rows);
+        BenchmarkDataset.load(context.getBean(ProductRepository.class), products);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Product createProduct() {
+        return productService.createProduct("benchmarkProduct", "benchmarkManufacturer", 10.50);
+    }
+
+    @Benchmark
+    public Product getProductById() {
+        return productService.getProductById(randomProduct().getId());
+    }
+
+    @Benchmark
+    public Product updateProduct() {
+        Product product = randomProduct().toBuilder().version(Product.NO_VERSION).build();
+        return productService.updateProduct(product, product.getId());
+    }
+
+    private Product randomProduct() {
+        return products.get(ThreadLocalRandom.current().nextInt(products.size()));
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.springbootcrudapp.benchmark;
+
+import com.example.springbootcrudapp.model.Product;
+import com.example.springbootcrudapp.search.ProductTextIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Text index queries against the benchmark catalog, whose names are {@code product-<n>} and manufacturers
+ * {@code manufacturer-<n % 100>}. The estimated footprint of each index size is printed during setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ProductTextIndexBenchmark {
+    private static final int LIMIT = 20;
+
+    @Param({"100000", "1000000"})
+    private int rows;
+
+    private ProductTextIndex productTextIndex;
+    private List<Product> products;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        productTextIndex = new ProductTextIndex();
+        products = BenchmarkDataset.products(rows);
+        products.forEach(productTextIndex::put);
+
+        System.out.printf("%n%d products indexed, about %d MiB%n", productTextIndex.size(),
+                productTextIndex.estimatedBytes() / (1024 * 1024));
+    }
+
+    /**
+     * A selective number next to a word every product contains.
+     */
+    @Benchmark
+    public List<UUID> searchRareAndCommonTerm() {
+        return productTextIndex.search(randomProduct().getProductName(), LIMIT);
+    }
+
+    /**
+     * A misspelled manufacturer, matched through trigrams, plus a number one product in a hundred contains.
+     */
+    @Benchmark
+    public List<UUID> searchMisspelledTerm() {
+        return productTextIndex.search("manufactrer " + ThreadLocalRandom.current().nextInt(100), LIMIT);
+    }
+
+    /**
+     * The worst case: a single word every product contains, so its whole posting list is scanned.
+     */
+    @Benchmark
+    public List<UUID> searchCommonTermOnly() {
+        return productTextIndex.search("product", LIMIT);
+    }
+
+    private Product randomProduct() {
+        return products.get(ThreadLocalRandom.current().nextInt(products.size()));
+    }
+}
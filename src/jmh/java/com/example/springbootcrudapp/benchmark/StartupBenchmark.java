@@ -0,0 +1,105 @@
+package com.example.springbootcrudapp.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.String.format;
+
+/**
+ * Time from launching a new JVM until the application is ready, restarting on a file database whose schema is
+ * current, as in a rolling deploy. Launches what {@code ./mvnw -Pcds package} built in {@code target/}, so run
+ * that first; the warm-up iteration creates the schema.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+public class StartupBenchmark {
+    private static final String MAIN_CLASS = "com.example.springbootcrudapp.SpringBootCrudAppApplication";
+    private static final String READY = "exiting";
+    private static final File TARGET = new File("target");
+
+    @Param({"default", "fast-start"})
+    private String profile;
+
+    @Param({"false", "true"})
+    private boolean cds;
+
+    private Path dataDirectory;
+    private List<String> command;
+    private Process process;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        File jar = new File(TARGET, "spring-boot-crud-app-0.0.1-SNAPSHOT.jar");
+        File classpath = new File(TARGET, "classpath.txt");
+        File archive = new File(TARGET, "app.jsa");
+
+        if (!jar.exists() || !classpath.exists() || cds && !archive.exists())
+            throw new IllegalStateException("Build the application with ./mvnw -Pcds package first");
+
+        dataDirectory = Files.createTempDirectory("startup-benchmark");
+        command = new ArrayList<>(List.of(new File(System.getProperty("java.home"), "bin/java").getPath()));
+
+        if (cds)
+            command.add("-XX:SharedArchiveFile=" + archive.getName());
+
+        command.addAll(List.of(
+                "-cp", jar.getName() + File.pathSeparator + Files.readString(classpath.toPath()).trim(),
+                MAIN_CLASS,
+                "--spring.profiles.active=persistent" + ("default".equals(profile) ? "" : "," + profile),
+                format("--spring.datasource.url=jdbc:h2:file:%s/products;CACHE_SIZE=65536;WRITE_DELAY=100" +
+                        ";PAGE_SIZE=16384;DB_CLOSE_ON_EXIT=FALSE", dataDirectory),
+                "--server.port=0",
+                "--product.startup.exit-after-start=true"));
+    }
+
+    /**
+     * Waits for the application to shut down, discarding what it logs meanwhile.
+     */
+    @TearDown(Level.Invocation)
+    public void awaitExit() throws InterruptedException, IOException {
+        process.getInputStream().close();
+
+        if (process.waitFor() != 0)
+            throw new IllegalStateException(format("Application exited with %d", process.exitValue()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (var files = Files.walk(dataDirectory)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public boolean start() throws IOException {
+        process = new ProcessBuilder(command)
+                .directory(TARGET)
+                .redirectErrorStream(true)
+                .start();
+
+        BufferedReader output = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        String line;
+
+        while ((line = output.readLine()) != null)
+            if (line.endsWith(READY))
+                return true;
+
+        return false;
+    }
+}
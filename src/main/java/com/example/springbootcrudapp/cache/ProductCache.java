@@ -0,0 +1,115 @@
+package com.example.springbootcrudapp.cache;
+
+import com.example.springbootcrudapp.model.Product;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+/**
+ * Size and TTL bounded product cache keyed by id. Entries are only ever replaced by a product with the
+ * same or a newer version, so a slow read racing an update can never roll the cache back to stale data.
+ * A read that misses drops what it loaded when its id was invalidated meanwhile, so a read racing a delete
+ * cannot put the deleted product back either. Products are copied on the way in and out because
+ * {@link Product} is mutable.
+ */
+public class ProductCache implements MeterBinder {
+    private static final int INVALIDATION_STRIPES = 64;
+
+    private final Cache<UUID, Product> cache;
+    private final long maximumSize;
+    private final AtomicLongArray invalidations = new AtomicLongArray(INVALIDATION_STRIPES);
+
+    public ProductCache(long maximumSize, Duration expireAfterWrite) {
+        this.maximumSize = maximumSize;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Loads the product on a miss. An invalidation of the id, or of another id of the same stripe, while the
+     * product was loaded drops the loaded product from the cache again, whichever of the two lands first.
+     */
+    public Optional<Product> get(UUID id, Function<UUID, Optional<Product>> loader) {
+        Product cached = cache.getIfPresent(id);
+
+        if (cached != null)
+            return Optional.of(copy(cached));
+
+        int stripe = stripe(id);
+        long invalidated = invalidations.get(stripe);
+        Optional<Product> loaded = loader.apply(id);
+
+        if (loaded.isPresent()) {
+            Product candidate = copy(loaded.get());
+
+            if (merge(candidate) == candidate && invalidations.get(stripe) != invalidated)
+                cache.asMap().remove(id, candidate);
+        }
+
+        return loaded.map(ProductCache::copy);
+    }
+
+    public void put(Product product) {
+        merge(copy(product));
+    }
+
+    public void invalidate(UUID id) {
+        invalidations.incrementAndGet(stripe(id));
+        cache.invalidate(id);
+    }
+
+    public void invalidateAll(Iterable<UUID> ids) {
+        for (UUID id : ids)
+            invalidations.incrementAndGet(stripe(id));
+
+        cache.invalidateAll(ids);
+    }
+
+    public void invalidateAll() {
+        for (int stripe = 0; stripe < INVALIDATION_STRIPES; stripe++)
+            invalidations.incrementAndGet(stripe);
+
+        cache.invalidateAll();
+    }
+
+    public long maximumSize() {
+        return maximumSize;
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "product");
+    }
+
+    /**
+     * Returns the cached product after the merge, which is the candidate unless the cache has a newer one.
+     */
+    private Product merge(Product candidate) {
+        return cache.asMap().merge(candidate.getId(), candidate,
+                (cached, newer) -> newer.getVersion() >= cached.getVersion() ? newer : cached);
+    }
+
+    private static int stripe(UUID id) {
+        return Math.floorMod(id.hashCode(), INVALIDATION_STRIPES);
+    }
+
+    private static Product copy(Product product) {
+        return product.toBuilder().build();
+    }
+}
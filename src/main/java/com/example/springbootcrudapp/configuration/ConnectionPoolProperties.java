@@ -0,0 +1,41 @@
+package com.example.springbootcrudapp.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Sizing and lifetime of the connection pool. The URL and credentials stay under {@code spring.datasource}.
+ */
+@Data
+@ConfigurationProperties(prefix = "product.datasource.pool")
+public class ConnectionPoolProperties {
+    /**
+     * Null derives the size from the number of cores, as {@code cores * 2 + 1}.
+     */
+    private Integer maximumPoolSize;
+    /**
+     * Null keeps a fixed-size pool, with as many idle connections as the maximum.
+     */
+    private Integer minimumIdle;
+    private Duration connectionTimeout = Duration.ofSeconds(5);
+    private Duration idleTimeout = Duration.ofMinutes(10);
+    private Duration maxLifetime = Duration.ofMinutes(30);
+    /**
+     * How long a connection may be held before a possible leak is logged. Zero disables the check.
+     */
+    private Duration leakDetectionThreshold = Duration.ofSeconds(30);
+    /**
+     * Prepared statements the database keeps per connection; more than the statements ProductDao issues.
+     */
+    private int preparedStatementCacheSize = 64;
+
+    public int resolveMaximumPoolSize() {
+        return maximumPoolSize != null ? maximumPoolSize : Runtime.getRuntime().availableProcessors() * 2 + 1;
+    }
+
+    public int resolveMinimumIdle() {
+        return minimumIdle != null ? minimumIdle : resolveMaximumPoolSize();
+    }
+}
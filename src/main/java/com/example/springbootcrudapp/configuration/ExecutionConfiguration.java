@@ -0,0 +1,70 @@
+package com.example.springbootcrudapp.configuration;
+
+import com.example.springbootcrudapp.controller.AdmissionControlFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Admission control bounds how many requests run and wait at once, so waiting happens in its queue, with 429
+ * beyond it, rather than on database connections. It adds no throughput. On a JDK with virtual threads requests
+ * also run on them, so that queued requests hold no platform thread.
+ */
+@Slf4j
+@Configuration
+@EnableConfigurationProperties(ExecutionProperties.class)
+@ConditionalOnProperty(prefix = "product.execution", name = "mode", havingValue = ExecutionProperties.VIRTUAL_THREADS)
+public class ExecutionConfiguration {
+    /**
+     * Without virtual threads Tomcat keeps its own thread pool: a larger pool of platform threads blocked in the
+     * admission queue served no more requests under load.
+     */
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> createRequestExecutorCustomizer() {
+        ExecutorService virtualThreads = newVirtualThreadPerTaskExecutor();
+
+        if (virtualThreads == null) {
+            log.warn("Virtual threads are not available on Java {}: requests stay on Tomcat's thread pool, and "
+                    + "product.execution.mode={} only adds admission control", Runtime.version().feature(),
+                    ExecutionProperties.VIRTUAL_THREADS);
+            return protocolHandler -> {
+            };
+        }
+
+        log.info("Running requests on virtual threads behind admission control");
+        return protocolHandler -> protocolHandler.setExecutor(virtualThreads);
+    }
+
+    @Bean
+    public FilterRegistrationBean<AdmissionControlFilter> createAdmissionControlFilter(ExecutionProperties properties,
+                                                                                     MeterRegistry meterRegistry) {
+        AdmissionControlFilter filter = new AdmissionControlFilter(properties.getMaxConcurrentRequests(),
+                properties.getMaxQueuedRequests(), properties.getQueueTimeout(), meterRegistry);
+
+        FilterRegistrationBean<AdmissionControlFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.addUrlPatterns("/products", "/products/*");
+        return registration;
+    }
+
+    /**
+     * Looked up reflectively, since the code is compiled for Java 11. Returns null when the running JDK has no
+     * virtual threads, or only as a disabled preview.
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            return null;
+        }
+    }
+}
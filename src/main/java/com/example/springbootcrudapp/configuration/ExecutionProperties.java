@@ -0,0 +1,28 @@
+package com.example.springbootcrudapp.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * How requests are executed. With {@code mode: virtual-threads} admission control bounds how many run and wait
+ * at once, and Tomcat hands every request to a virtual thread on a JDK that has them; on Java 11 it keeps its
+ * own thread pool. See {@link ExecutionConfiguration}.
+ */
+@Data
+@ConfigurationProperties(prefix = "product.execution")
+public class ExecutionProperties {
+    public static final String VIRTUAL_THREADS = "virtual-threads";
+
+    /**
+     * {@code default} keeps Tomcat's own thread pool; {@code virtual-threads} enables the mode described above.
+     */
+    private String mode = "default";
+    private int maxConcurrentRequests = 64;
+    private int maxQueuedRequests = 256;
+    /**
+     * How long a queued request waits for a slot before it is answered with 429.
+     */
+    private Duration queueTimeout = Duration.ofSeconds(1);
+}
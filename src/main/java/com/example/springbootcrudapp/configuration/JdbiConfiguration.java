@@ -1,17 +1,85 @@
 package com.example.springbootcrudapp.configuration;
 
+import com.example.springbootcrudapp.dao.ProductDao;
+import com.example.springbootcrudapp.dao.UuidArgumentFactory;
+import com.example.springbootcrudapp.dao.UuidColumnMapper;
+import com.example.springbootcrudapp.metrics.TimedSqlLogger;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.statement.SqlStatements;
+import org.jdbi.v3.core.statement.StatementCustomizers;
 import org.jdbi.v3.sqlobject.SqlObjectPlugin;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import javax.sql.DataSource;
+import java.util.UUID;
 
 @Configuration
+@EnableConfigurationProperties(ConnectionPoolProperties.class)
 public class JdbiConfiguration {
+    /**
+     * Rows fetched per round trip by default; large enough for a full page of products. Streaming queries
+     * override it with {@code @FetchSize}.
+     */
+    private static final int DEFAULT_FETCH_SIZE = 1000;
+    private static final String POOL_NAME = "products";
+
+    /**
+     * The pooled data source behind Jdbi and Liquibase. Spring Boot binds the pool metrics
+     * ({@code hikaricp.connections.*}) to it, tagged {@code pool=products}.
+     */
     @Bean
-    public Jdbi createJdbi(DataSource dataSource) {
-        return Jdbi.create(dataSource)
-                .installPlugin(new SqlObjectPlugin());
+    public HikariDataSource createDataSource(DataSourceProperties dataSourceProperties,
+                                             ConnectionPoolProperties poolProperties) {
+        HikariDataSource dataSource = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+
+        configurePool(dataSource, POOL_NAME, poolProperties);
+        return dataSource;
+    }
+
+    @Bean
+    public Jdbi createJdbi(DataSource dataSource, MeterRegistry meterRegistry) {
+        return newJdbi(dataSource, new TimedSqlLogger(TimedSqlLogger.PRIMARY, meterRegistry));
+    }
+
+    /**
+     * The one {@link ProductDao} instance shared by the application. The SqlObject proxy is created once
+     * here; Jdbi caches the parsed SQL and method handlers, and the database caches the prepared statements
+     * per connection (see {@link ConnectionPoolProperties#getPreparedStatementCacheSize()}).
+     */
+    @Bean
+    public ProductDao createProductDao(Jdbi jdbi) {
+        return jdbi.onDemand(ProductDao.class);
+    }
+
+    /**
+     * Sizes the pool the same way for the primary and for every replica.
+     */
+    static void configurePool(HikariDataSource dataSource, String poolName, ConnectionPoolProperties poolProperties) {
+        dataSource.setPoolName(poolName);
+        dataSource.setMaximumPoolSize(poolProperties.resolveMaximumPoolSize());
+        dataSource.setMinimumIdle(poolProperties.resolveMinimumIdle());
+        dataSource.setConnectionTimeout(poolProperties.getConnectionTimeout().toMillis());
+        dataSource.setIdleTimeout(poolProperties.getIdleTimeout().toMillis());
+        dataSource.setMaxLifetime(poolProperties.getMaxLifetime().toMillis());
+        dataSource.setLeakDetectionThreshold(poolProperties.getLeakDetectionThreshold().toMillis());
+        dataSource.addDataSourceProperty("QUERY_CACHE_SIZE", poolProperties.getPreparedStatementCacheSize());
+    }
+
+    static Jdbi newJdbi(DataSource dataSource, TimedSqlLogger sqlLogger) {
+        Jdbi jdbi = Jdbi.create(dataSource)
+                .installPlugin(new SqlObjectPlugin())
+                .setSqlLogger(sqlLogger)
+                .registerArgument(new UuidArgumentFactory())
+                .registerColumnMapper(UUID.class, new UuidColumnMapper());
+
+        jdbi.getConfig(SqlStatements.class).addCustomizer(StatementCustomizers.fetchSize(DEFAULT_FETCH_SIZE));
+        return jdbi;
     }
 }
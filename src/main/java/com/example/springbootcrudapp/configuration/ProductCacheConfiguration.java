@@ -0,0 +1,15 @@
+package com.example.springbootcrudapp.configuration;
+
+import com.example.springbootcrudapp.cache.ProductCache;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(ProductCacheProperties.class)
+public class ProductCacheConfiguration {
+    @Bean
+    public ProductCache createProductCache(ProductCacheProperties properties) {
+        return new ProductCache(properties.getMaximumSize(), properties.getExpireAfterWrite());
+    }
+}
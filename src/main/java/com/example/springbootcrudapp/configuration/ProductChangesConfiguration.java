@@ -0,0 +1,22 @@
+package com.example.springbootcrudapp.configuration;
+
+import com.example.springbootcrudapp.dao.ProductDao;
+import com.example.springbootcrudapp.repository.ProductChangeLog;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(ProductChangesProperties.class)
+public class ProductChangesConfiguration {
+    @Bean(destroyMethod = "close")
+    public ProductChangeLog createProductChangeLog(ProductDao productDao, ProductChangesProperties properties) {
+        return new ProductChangeLog(productDao, properties.getRetention());
+    }
+
+    @Bean
+    public SmartInitializingSingleton startProductChangeLog(ProductChangeLog productChangeLog) {
+        return productChangeLog::start;
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.springbootcrudapp.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * The change log behind {@code GET /products/changes}.
+ */
+@Data
+@ConfigurationProperties(prefix = "product.changes")
+public class ProductChangesProperties {
+    /**
+     * How long changes are kept; readers that fall further behind have to download the catalog again.
+     */
+    private Duration retention = Duration.ofDays(7);
+
+    /**
+     * How long a long-poll waits for a change before answering with none.
+     */
+    private Duration longPollTimeout = Duration.ofSeconds(30);
+
+    /**
+     * How long an event stream stays open before the client has to reconnect with {@code Last-Event-ID}.
+     */
+    private Duration streamTimeout = Duration.ofMinutes(10);
+}
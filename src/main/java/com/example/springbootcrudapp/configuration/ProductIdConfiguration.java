@@ -0,0 +1,26 @@
+package com.example.springbootcrudapp.configuration;
+
+import com.example.springbootcrudapp.id.ProductIdGenerator;
+import com.example.springbootcrudapp.id.RandomProductIdGenerator;
+import com.example.springbootcrudapp.id.TimeOrderedProductIdGenerator;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import static java.lang.String.format;
+
+@Configuration
+@EnableConfigurationProperties(ProductIdProperties.class)
+public class ProductIdConfiguration {
+    @Bean
+    public ProductIdGenerator createProductIdGenerator(ProductIdProperties properties) {
+        switch (properties.getGenerator()) {
+            case ProductIdProperties.TIME_ORDERED:
+                return new TimeOrderedProductIdGenerator();
+            case ProductIdProperties.RANDOM:
+                return new RandomProductIdGenerator();
+            default:
+                throw new IllegalStateException(format("Unknown product id generator [%s]", properties.getGenerator()));
+        }
+    }
+}
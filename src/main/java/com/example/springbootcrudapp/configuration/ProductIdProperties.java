@@ -0,0 +1,20 @@
+package com.example.springbootcrudapp.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * How new product ids are generated.
+ */
+@Data
+@ConfigurationProperties(prefix = "product.id")
+public class ProductIdProperties {
+    public static final String TIME_ORDERED = "time-ordered";
+    public static final String RANDOM = "random";
+
+    /**
+     * {@code time-ordered} for version 7 UUIDs that keep inserts local in the primary key index,
+     * {@code random} for version 4 UUIDs.
+     */
+    private String generator = TIME_ORDERED;
+}
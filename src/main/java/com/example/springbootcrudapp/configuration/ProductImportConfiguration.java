@@ -0,0 +1,54 @@
+package com.example.springbootcrudapp.configuration;
+
+import com.example.springbootcrudapp.importer.ProductImportFormat;
+import com.example.springbootcrudapp.importer.ProductImporter;
+import com.example.springbootcrudapp.model.ProductImport;
+import com.example.springbootcrudapp.model.ProductImportStatus;
+import com.example.springbootcrudapp.service.ProductService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static java.lang.String.format;
+
+@Configuration
+@EnableConfigurationProperties(ProductImportProperties.class)
+public class ProductImportConfiguration {
+    private static final String IMPORT_OPTION = "import";
+
+    @Bean(destroyMethod = "close")
+    public ProductImporter createProductImporter(ProductImportProperties properties, ProductService productService,
+                                                 ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        return new ProductImporter(productService, objectMapper, Path.of(properties.getDirectory()),
+                properties.resolveParallelism(), properties.getChunkSize(), properties.getQueueCapacity(),
+                properties.getMaxRetainedImports(), properties.getProgressInterval(), meterRegistry);
+    }
+
+    /**
+     * Imports the files given as {@code --import=<file>} before the application reports ready, CSV for
+     * {@code .csv} files and newline delimited JSON otherwise. Combine with
+     * {@code --product.startup.exit-after-start=true} to exit once they are imported.
+     */
+    @Bean
+    public ApplicationRunner importProductFiles(ProductImporter productImporter) {
+        return args -> {
+            List<String> files = args.getOptionValues(IMPORT_OPTION);
+
+            if (files == null)
+                return;
+
+            for (String file : files) {
+                ProductImport result = productImporter.importFile(ProductImportFormat.fromFileName(file), Path.of(file));
+
+                if (result.getStatus() == ProductImportStatus.FAILED)
+                    throw new IllegalStateException(format("Import of [%s] failed: %s", file, result.getMessage()));
+            }
+        };
+    }
+}
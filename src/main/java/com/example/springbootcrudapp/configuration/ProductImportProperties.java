@@ -0,0 +1,47 @@
+package com.example.springbootcrudapp.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Bulk imports through {@code POST /products/imports} or {@code --import=<file>} on the command line.
+ */
+@Data
+@ConfigurationProperties(prefix = "product.import")
+public class ProductImportProperties {
+    /**
+     * Where uploads are kept while they are imported, and where the dead-letter files of rejected rows go.
+     */
+    private String directory = "data/imports";
+
+    /**
+     * Threads parsing and validating rows per import, by default one per core.
+     */
+    private int parallelism = 0;
+
+    /**
+     * Rows per chunk handed between the stages, and per insert batch and transaction.
+     */
+    private int chunkSize = 1000;
+
+    /**
+     * Chunks each stage may queue up before the one feeding it has to wait.
+     */
+    private int queueCapacity = 8;
+
+    /**
+     * How many imports {@code GET /products/imports/{id}} still knows about.
+     */
+    private int maxRetainedImports = 100;
+
+    /**
+     * How often a running import logs its progress.
+     */
+    private Duration progressInterval = Duration.ofSeconds(10);
+
+    public int resolveParallelism() {
+        return parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.springbootcrudapp.configuration;
+
+import com.example.springbootcrudapp.outbox.FileProductEventSink;
+import com.example.springbootcrudapp.outbox.InMemoryProductEventSink;
+import com.example.springbootcrudapp.outbox.ProductEventSink;
+import com.example.springbootcrudapp.outbox.ProductOutboxRelay;
+import com.example.springbootcrudapp.repository.ProductChangeLog;
+import com.example.springbootcrudapp.repository.ProductRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static java.lang.String.format;
+
+@Configuration
+@EnableConfigurationProperties(ProductOutboxProperties.class)
+@ConditionalOnProperty(prefix = "product.outbox", name = "enabled", havingValue = "true")
+public class ProductOutboxConfiguration {
+    private static final String RELAY_NAME = "default";
+
+    @Bean
+    public ProductEventSink createProductEventSink(ProductOutboxProperties properties, ObjectMapper objectMapper)
+            throws IOException {
+        switch (properties.getSink()) {
+            case ProductOutboxProperties.FILE:
+                return new FileProductEventSink(Path.of(properties.getFile()), objectMapper);
+            case ProductOutboxProperties.IN_MEMORY:
+                return new InMemoryProductEventSink();
+            default:
+                throw new IllegalStateException(format("Unknown product event sink [%s]", properties.getSink()));
+        }
+    }
+
+    /**
+     * Closes the sink too, after a last batch.
+     */
+    @Bean(destroyMethod = "close")
+    public ProductOutboxRelay createProductOutboxRelay(ProductOutboxProperties properties,
+                                                       ProductRepository productRepository,
+                                                       ProductEventSink productEventSink,
+                                                       ProductChangeLog productChangeLog,
+                                                       MeterRegistry meterRegistry) {
+        ProductOutboxRelay relay = new ProductOutboxRelay(RELAY_NAME, productRepository, productEventSink,
+                properties.getBatchSize(), properties.getInterval(), meterRegistry);
+
+        productChangeLog.retainAfter(relay::relayedThrough);
+        return relay;
+    }
+
+    @Bean
+    public SmartInitializingSingleton startProductOutboxRelay(ProductOutboxRelay productOutboxRelay) {
+        return productOutboxRelay::start;
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.springbootcrudapp.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Relaying the change log to an event sink.
+ */
+@Data
+@ConfigurationProperties(prefix = "product.outbox")
+public class ProductOutboxProperties {
+    public static final String FILE = "file";
+    public static final String IN_MEMORY = "in-memory";
+
+    private boolean enabled = false;
+
+    /**
+     * {@code file} for newline delimited JSON in {@link #file}, {@code in-memory} as a broker stand-in.
+     */
+    private String sink = FILE;
+
+    private String file = "data/outbox/product-events.ndjson";
+
+    private int batchSize = 500;
+
+    private Duration interval = Duration.ofMillis(200);
+}
@@ -0,0 +1,103 @@
+package com.example.springbootcrudapp.configuration;
+
+import com.example.springbootcrudapp.dao.ProductDao;
+import com.example.springbootcrudapp.metrics.TimedSqlLogger;
+import com.example.springbootcrudapp.replica.ProductReplica;
+import com.example.springbootcrudapp.replica.ProductReplicaRouter;
+import com.example.springbootcrudapp.replica.ProductReplicaStandIn;
+import com.example.springbootcrudapp.repository.ProductChangeLog;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import liquibase.integration.spring.SpringLiquibase;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.liquibase.LiquibaseProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ResourceLoader;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+@Configuration
+@EnableConfigurationProperties({ProductReplicaProperties.class, LiquibaseProperties.class})
+public class ProductReplicaConfiguration {
+    private static final String POOL_NAME_PREFIX = "products-replica-";
+
+    /**
+     * The replicas are not beans, so that the primary stays the only {@code DataSource} of the context. Their
+     * pools report {@code hikaricp.connections.*} tagged {@code pool=products-replica-<n>}.
+     */
+    @Bean(destroyMethod = "close")
+    public ProductReplicaRouter createProductReplicaRouter(ProductDao productDao, ProductReplicaProperties properties,
+                                                           DataSourceProperties dataSourceProperties,
+                                                           ConnectionPoolProperties poolProperties,
+                                                           MeterRegistry meterRegistry) {
+        List<ProductReplica> replicas = new ArrayList<>();
+
+        for (String url : properties.getUrls()) {
+            String name = POOL_NAME_PREFIX + (replicas.size() + 1);
+            HikariDataSource dataSource = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(dataSourceProperties.determineDriverClassName())
+                    .url(url)
+                    .username(dataSourceProperties.determineUsername())
+                    .password(dataSourceProperties.determinePassword())
+                    .build();
+
+            JdbiConfiguration.configurePool(dataSource, name, poolProperties);
+            dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+
+            ProductDao replicaDao = JdbiConfiguration.newJdbi(dataSource, new TimedSqlLogger(name, meterRegistry))
+                    .onDemand(ProductDao.class);
+            replicas.add(new ProductReplica(name, dataSource, replicaDao, meterRegistry));
+        }
+
+        return new ProductReplicaRouter(productDao, replicas, properties.getConsistencyWindow(), properties.getMaxLag(),
+                properties.getHealthCheckInterval(), properties.getMaxTrackedWrites(), meterRegistry);
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "product.datasource.replicas", name = "stand-in", havingValue = "true")
+    public ProductReplicaStandIn createProductReplicaStandIn(ProductReplicaRouter productReplicaRouter,
+                                                             ProductDao productDao, ProductChangeLog productChangeLog,
+                                                             LiquibaseProperties liquibaseProperties,
+                                                             ResourceLoader resourceLoader,
+                                                             ProductReplicaProperties properties) {
+        return new ProductReplicaStandIn(productDao, productChangeLog::published, productReplicaRouter.getReplicas(),
+                replica -> migrate(replica.getDataSource(), liquibaseProperties, resourceLoader),
+                properties.getStandInInterval());
+    }
+
+    /**
+     * Fills the stand-in replicas, if any, before reads are routed to the replicas.
+     */
+    @Bean
+    public SmartInitializingSingleton startProductReplicas(ProductReplicaRouter productReplicaRouter,
+                                                           Optional<ProductReplicaStandIn> productReplicaStandIn) {
+        return () -> {
+            productReplicaStandIn.ifPresent(ProductReplicaStandIn::start);
+            productReplicaRouter.start();
+        };
+    }
+
+    private static void migrate(HikariDataSource dataSource, LiquibaseProperties properties, ResourceLoader resourceLoader) {
+        SpringLiquibase liquibase = new SpringLiquibase();
+        liquibase.setDataSource(dataSource);
+        liquibase.setChangeLog(properties.getChangeLog());
+        liquibase.setContexts(properties.getContexts());
+        liquibase.setLabels(properties.getLabels());
+        liquibase.setResourceLoader(resourceLoader);
+
+        try {
+            liquibase.afterPropertiesSet();
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not migrate the replica schema", e);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.springbootcrudapp.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read replicas of the products database. Their pools are sized like the primary's (see
+ * {@link ConnectionPoolProperties}) and use the credentials under {@code spring.datasource}.
+ */
+@Data
+@ConfigurationProperties(prefix = "product.datasource.replicas")
+public class ProductReplicaProperties {
+    /**
+     * JDBC URLs of the replicas; without any, every read goes to the primary.
+     */
+    private List<String> urls = new ArrayList<>();
+    /**
+     * How long reads check that replicas show a write before trusting them with the product again. Must be
+     * longer than the maximum lag.
+     */
+    private Duration consistencyWindow = Duration.ofMinutes(1);
+    /**
+     * A replica still lacking a write this old is taken out of rotation until it catches up.
+     */
+    private Duration maxLag = Duration.ofSeconds(5);
+    private Duration healthCheckInterval = Duration.ofSeconds(5);
+    /**
+     * Writes remembered within the consistency window; beyond it, reads go to the primary for the window.
+     */
+    private int maxTrackedWrites = 100_000;
+    /**
+     * Copies the primary's changes to the replicas from this process, for local databases such as H2 that do
+     * not replicate themselves.
+     */
+    private boolean standIn;
+    private Duration standInInterval = Duration.ofMillis(500);
+}
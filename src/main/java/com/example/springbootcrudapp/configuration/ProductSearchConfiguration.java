@@ -0,0 +1,33 @@
+package com.example.springbootcrudapp.configuration;
+
+import com.example.springbootcrudapp.repository.ProductRepository;
+import com.example.springbootcrudapp.search.ProductTextIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Slf4j
+@Configuration
+public class ProductSearchConfiguration {
+    @Bean
+    public ProductTextIndex createProductTextIndex() {
+        return new ProductTextIndex();
+    }
+
+    /**
+     * Fills the text index once every bean, including the Liquibase migration, is ready and before the web
+     * server starts taking requests. Products are streamed, never held in memory as a whole catalog.
+     */
+    @Bean
+    public SmartInitializingSingleton loadProductTextIndex(ProductTextIndex productTextIndex,
+                                                           ProductRepository productRepository) {
+        return () -> {
+            long start = System.nanoTime();
+            productRepository.forEachProduct(null, productTextIndex::put);
+
+            log.info("Indexed {} products for text search in {} ms, about {} KiB", productTextIndex.size(),
+                    (System.nanoTime() - start) / 1_000_000, productTextIndex.estimatedBytes() / 1024);
+        };
+    }
+}
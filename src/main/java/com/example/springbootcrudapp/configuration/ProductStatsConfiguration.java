@@ -0,0 +1,27 @@
+package com.example.springbootcrudapp.configuration;
+
+import com.example.springbootcrudapp.repository.ProductRepository;
+import com.example.springbootcrudapp.stats.ProductStatistics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(ProductStatsProperties.class)
+public class ProductStatsConfiguration {
+    @Bean(destroyMethod = "close")
+    public ProductStatistics createProductStatistics(ProductRepository productRepository,
+                                                     ProductStatsProperties properties, MeterRegistry meterRegistry) {
+        return new ProductStatistics(productRepository, properties.getReconcileInterval(), meterRegistry);
+    }
+
+    /**
+     * Computes the statistics once the schema has been migrated and before the web server starts.
+     */
+    @Bean
+    public SmartInitializingSingleton startProductStatistics(ProductStatistics productStatistics) {
+        return productStatistics::start;
+    }
+}
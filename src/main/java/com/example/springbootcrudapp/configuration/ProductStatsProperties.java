@@ -0,0 +1,18 @@
+package com.example.springbootcrudapp.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * The in-memory statistics behind {@code GET /products/stats}.
+ */
+@Data
+@ConfigurationProperties(prefix = "product.stats")
+public class ProductStatsProperties {
+    /**
+     * How often the statistics are compared with a {@code GROUP BY} over the products table.
+     */
+    private Duration reconcileInterval = Duration.ofMinutes(5);
+}
@@ -0,0 +1,30 @@
+package com.example.springbootcrudapp.configuration;
+
+import com.example.springbootcrudapp.cache.ProductCache;
+import com.example.springbootcrudapp.dao.ProductDao;
+import com.example.springbootcrudapp.repository.ProductWarmUp;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(ProductWarmUpProperties.class)
+@ConditionalOnProperty(prefix = "product.warm-up", name = "enabled", havingValue = "true")
+public class ProductWarmUpConfiguration {
+    @Bean
+    public ProductWarmUp createProductWarmUp(ProductWarmUpProperties properties, ProductDao productDao,
+                                             ProductCache productCache) {
+        return new ProductWarmUp(productDao, productCache, properties.getMaxCachedProducts());
+    }
+
+    /**
+     * Runs once the schema has been migrated and before the web server starts, so the application only reports
+     * ready when it is warm.
+     */
+    @Bean
+    public SmartInitializingSingleton runProductWarmUp(ProductWarmUp productWarmUp) {
+        return productWarmUp::run;
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.springbootcrudapp.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Warming up the database and the product cache before the application takes requests.
+ */
+@Data
+@ConfigurationProperties(prefix = "product.warm-up")
+public class ProductWarmUpProperties {
+    private boolean enabled = false;
+
+    /**
+     * How many of the products changed last are loaded into the product cache, at most its maximum size.
+     */
+    private int maxCachedProducts = 10_000;
+}
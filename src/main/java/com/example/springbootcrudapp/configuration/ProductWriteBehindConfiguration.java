@@ -0,0 +1,42 @@
+package com.example.springbootcrudapp.configuration;
+
+import com.example.springbootcrudapp.repository.ProductRepository;
+import com.example.springbootcrudapp.search.ProductTextIndex;
+import com.example.springbootcrudapp.stats.ProductStatistics;
+import com.example.springbootcrudapp.writebehind.ProductUpdateJournal;
+import com.example.springbootcrudapp.writebehind.ProductWriteBehindQueue;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+@Configuration
+@EnableConfigurationProperties(ProductWriteBehindProperties.class)
+@ConditionalOnProperty(prefix = "product.write-behind", name = "enabled", havingValue = "true")
+public class ProductWriteBehindConfiguration {
+    @Bean(destroyMethod = "close")
+    public ProductWriteBehindQueue createProductWriteBehindQueue(ProductWriteBehindProperties properties,
+                                                                 ProductRepository productRepository,
+                                                                 ProductTextIndex productTextIndex,
+                                                                 ProductStatistics productStatistics,
+                                                                 MeterRegistry meterRegistry) throws IOException {
+        ProductUpdateJournal journal = new ProductUpdateJournal(Path.of(properties.getJournalDirectory()),
+                properties.isSyncJournal());
+
+        return new ProductWriteBehindQueue(productRepository, productTextIndex, productStatistics, journal,
+                properties.getMaxPendingUpdates(), properties.getFlushInterval(), meterRegistry);
+    }
+
+    /**
+     * Starts flushing, and so replaying recovered updates, only once the schema has been migrated.
+     */
+    @Bean
+    public SmartInitializingSingleton startProductWriteBehindQueue(ProductWriteBehindQueue productWriteBehindQueue) {
+        return productWriteBehindQueue::start;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.springbootcrudapp.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Write-behind of single product updates sent with {@code Prefer: respond-async}.
+ */
+@Data
+@ConfigurationProperties(prefix = "product.write-behind")
+public class ProductWriteBehindProperties {
+    private boolean enabled = false;
+
+    /**
+     * How long updates are coalesced per product before they are written as one batch.
+     */
+    private Duration flushInterval = Duration.ofMillis(100);
+
+    /**
+     * Distinct products waiting to be written; further updates are applied synchronously.
+     */
+    private int maxPendingUpdates = 10_000;
+
+    private String journalDirectory = "data/write-behind";
+
+    /**
+     * Forces every journaled update to disk before it is acknowledged.
+     */
+    private boolean syncJournal = true;
+}
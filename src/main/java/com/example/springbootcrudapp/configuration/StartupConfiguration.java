@@ -0,0 +1,66 @@
+package com.example.springbootcrudapp.configuration;
+
+import com.example.springbootcrudapp.schema.ChecksumSkippingLiquibase;
+import liquibase.integration.spring.SpringLiquibase;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.liquibase.LiquibaseProperties;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.lang.management.ManagementFactory;
+
+@Slf4j
+@Configuration
+@EnableConfigurationProperties({StartupProperties.class, LiquibaseProperties.class})
+public class StartupConfiguration {
+    /**
+     * With {@code spring.main.lazy-initialization} only the beans a request needs are created, on first use.
+     * The schema migration and the beans that start background work are still created at startup.
+     */
+    @Bean
+    public static LazyInitializationExcludeFilter eagerStartupBeans() {
+        return LazyInitializationExcludeFilter.forBeanTypes(SpringLiquibase.class, SmartInitializingSingleton.class);
+    }
+
+    /**
+     * Replaces the Liquibase bean of Spring Boot, which backs off, with one configured the same way.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "product.startup", name = "skip-current-schema", havingValue = "true")
+    public SpringLiquibase createChecksumSkippingLiquibase(DataSource dataSource, LiquibaseProperties properties) {
+        SpringLiquibase liquibase = new ChecksumSkippingLiquibase();
+        liquibase.setDataSource(dataSource);
+        liquibase.setChangeLog(properties.getChangeLog());
+        liquibase.setContexts(properties.getContexts());
+        liquibase.setLabels(properties.getLabels());
+        liquibase.setDefaultSchema(properties.getDefaultSchema());
+        liquibase.setLiquibaseSchema(properties.getLiquibaseSchema());
+        liquibase.setLiquibaseTablespace(properties.getLiquibaseTablespace());
+        liquibase.setDatabaseChangeLogTable(properties.getDatabaseChangeLogTable());
+        liquibase.setDatabaseChangeLogLockTable(properties.getDatabaseChangeLogLockTable());
+        liquibase.setDropFirst(properties.isDropFirst());
+        liquibase.setShouldRun(properties.isEnabled());
+        liquibase.setChangeLogParameters(properties.getParameters());
+        liquibase.setRollbackFile(properties.getRollbackFile());
+        liquibase.setTestRollbackOnUpdate(properties.isTestRollbackOnUpdate());
+        liquibase.setTag(properties.getTag());
+        return liquibase;
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "product.startup", name = "exit-after-start", havingValue = "true")
+    public ApplicationListener<ApplicationReadyEvent> exitAfterStart() {
+        return event -> {
+            log.info("Started in {} ms, exiting", ManagementFactory.getRuntimeMXBean().getUptime());
+            System.exit(SpringApplication.exit(event.getApplicationContext()));
+        };
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.springbootcrudapp.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Shortcuts for starting the application, see {@code application-fast-start.yaml}.
+ */
+@Data
+@ConfigurationProperties(prefix = "product.startup")
+public class StartupProperties {
+    /**
+     * Skips Liquibase when the change log is the one last applied to the database.
+     */
+    private boolean skipCurrentSchema = false;
+
+    /**
+     * Exits as soon as the application is ready, for the run that records the class data sharing archive.
+     */
+    private boolean exitAfterStart = false;
+}
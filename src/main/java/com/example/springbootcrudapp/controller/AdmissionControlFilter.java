@@ -0,0 +1,122 @@
+package com.example.springbootcrudapp.controller;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lets at most {@code maxConcurrent} requests run at once. Further requests wait, up to {@code maxQueued} of
+ * them and for at most {@code queueTimeout}; anything beyond that is answered with 429 and a Retry-After header.
+ * <p>
+ * A request that goes asynchronous, such as an export stream, a long poll or a server-sent event stream, keeps
+ * its permit until it completes, times out or fails, since that is when it does its work.
+ */
+public class AdmissionControlFilter extends OncePerRequestFilter {
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    private final Semaphore permits;
+    private final int maxQueued;
+    private final long queueTimeoutNanos;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Counter rejected;
+
+    public AdmissionControlFilter(int maxConcurrent, int maxQueued, Duration queueTimeout, MeterRegistry meterRegistry) {
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.maxQueued = maxQueued;
+        this.queueTimeoutNanos = queueTimeout.toNanos();
+        this.rejected = meterRegistry.counter("product.requests.rejected");
+
+        meterRegistry.gauge("product.requests.active", permits, p -> maxConcurrent - p.availablePermits());
+        meterRegistry.gauge("product.requests.queued", queued);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (!admit()) {
+            rejected.increment();
+            response.setHeader(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+            response.sendError(HttpStatus.TOO_MANY_REQUESTS.value());
+            return;
+        }
+
+        boolean async = false;
+
+        try {
+            chain.doFilter(request, response);
+
+            async = request.isAsyncStarted();
+            if (async)
+                request.getAsyncContext().addListener(new PermitRelease());
+        } finally {
+            if (!async)
+                permits.release();
+        }
+    }
+
+    private boolean admit() {
+        if (permits.tryAcquire())
+            return true;
+
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            return false;
+        }
+
+        try {
+            return permits.tryAcquire(queueTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            queued.decrementAndGet();
+        }
+    }
+
+    /**
+     * Releases the permit of an asynchronous request once, whichever of the events comes first.
+     */
+    private class PermitRelease implements AsyncListener {
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true))
+                permits.release();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.springbootcrudapp.controller;
+
+import com.example.springbootcrudapp.model.ProductChange;
+import com.example.springbootcrudapp.model.ProductChangePage;
+import com.example.springbootcrudapp.service.ProductService;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sends changes to an event stream as they are published, one {@code product-change} event per change with
+ * its sequence number as the event id. Nothing is held while waiting: each page is read on the thread that
+ * published it, or inline while the stream is catching up.
+ */
+class ProductChangeStream {
+    static final String EVENT_NAME = "product-change";
+    private static final int PAGE_SIZE = 1000;
+
+    private final ProductService productService;
+    private final SseEmitter emitter;
+    private volatile boolean closed;
+    private long since;
+
+    ProductChangeStream(ProductService productService, SseEmitter emitter, long since) {
+        this.productService = productService;
+        this.emitter = emitter;
+        this.since = since;
+
+        emitter.onCompletion(() -> closed = true);
+        emitter.onTimeout(() -> closed = true);
+        emitter.onError(e -> closed = true);
+    }
+
+    /**
+     * Sends whatever is published already, then keeps sending from the thread that publishes the next change.
+     * Throws when the first page cannot be read, before anything was sent.
+     */
+    void start() {
+        while (!closed) {
+            CompletableFuture<ProductChangePage> page = productService.awaitChanges(since, PAGE_SIZE);
+
+            if (!page.isDone()) {
+                page.whenComplete((changes, error) -> {
+                    if (send(changes, error))
+                        resume();
+                });
+                return;
+            }
+
+            ProductChangePage changes = null;
+            Throwable error = null;
+
+            try {
+                changes = page.join();
+            } catch (RuntimeException e) {
+                error = e;
+            }
+
+            if (!send(changes, error))
+                return;
+        }
+    }
+
+    private void resume() {
+        try {
+            start();
+        } catch (RuntimeException e) {
+            send(null, e);
+        }
+    }
+
+    private boolean send(ProductChangePage page, Throwable error) {
+        if (closed)
+            return false;
+
+        if (error != null) {
+            closed = true;
+            emitter.completeWithError(error);
+            return false;
+        }
+
+        try {
+            for (ProductChange change : page.getChanges()) {
+                emitter.send(SseEmitter.event()
+                        .id(Long.toString(change.getSequence()))
+                        .name(EVENT_NAME)
+                        .data(change, MediaType.APPLICATION_JSON));
+            }
+        } catch (IOException | IllegalStateException e) {
+            closed = true;
+            return false;
+        }
+
+        since = page.getNext();
+        return true;
+    }
+}
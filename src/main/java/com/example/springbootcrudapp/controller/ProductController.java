@@ -1,70 +1,426 @@
 package com.example.springbootcrudapp.controller;
 
+import com.example.springbootcrudapp.configuration.ProductChangesProperties;
+import com.example.springbootcrudapp.export.CsvProductExporter;
+import com.example.springbootcrudapp.export.JacksonProductExporter;
+import com.example.springbootcrudapp.importer.ProductImportFormat;
+import com.example.springbootcrudapp.importer.ProductImporter;
 import com.example.springbootcrudapp.model.Product;
+import com.example.springbootcrudapp.model.ProductBatchResult;
+import com.example.springbootcrudapp.model.ProductChange;
+import com.example.springbootcrudapp.model.ProductChangePage;
+import com.example.springbootcrudapp.model.ProductImport;
+import com.example.springbootcrudapp.model.ProductSearch;
+import com.example.springbootcrudapp.model.ProductSortField;
+import com.example.springbootcrudapp.model.ProductStats;
 import com.example.springbootcrudapp.service.ProductService;
-import com.example.springbootcrudapp.shared.DatabaseOperationException;
 import com.example.springbootcrudapp.shared.EntityNotFoundException;
 import com.example.springbootcrudapp.shared.InvalidDataException;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriComponentsBuilder;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 @RestController
 public class ProductController {
+    private static final String PREFER = "Prefer";
+    private static final String PREFERENCE_APPLIED = "Preference-Applied";
+    private static final String RESPOND_ASYNC = "respond-async";
+    private static final String LAST_EVENT_ID = "Last-Event-ID";
+    private static final String CHANGE_SEQUENCE = "Product-Change-Sequence";
+    private static final String STATS_GROUP_BY_MANUFACTURER = "manufacturer";
+
     private final ProductService productService;
+    private final ObjectMapper objectMapper;
+    private final ProductChangesProperties changesProperties;
+    private final ProductImporter productImporter;
+    private final SmileFactory smileFactory = new SmileFactory();
+    private final CBORFactory cborFactory = new CBORFactory();
 
     @Autowired
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService, ObjectMapper objectMapper,
+                             ProductChangesProperties changesProperties, ProductImporter productImporter) {
         this.productService = productService;
+        this.objectMapper = objectMapper;
+        this.changesProperties = changesProperties;
+        this.productImporter = productImporter;
     }
 
     @PostMapping("/products")
-    public Product createProduct(@RequestBody Product product) {
-        try {
-            return productService.createProduct(product.getProductName(), product.getManufacturer(), product.getPrice());
-        } catch (InvalidDataException e) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid data", e);
+    public ResponseEntity<Product> createProduct(@RequestBody Product product) {
+        Product createdProduct = productService.createProduct(product.getProductName(), product.getManufacturer(), product.getPrice());
+        return ResponseEntity.ok().eTag(ProductETags.ofVersion(createdProduct.getVersion())).body(createdProduct);
+    }
+
+    /**
+     * Writes up to {@link ProductService#MAX_BATCH_SIZE} products, a JSON array or newline delimited JSON, in
+     * one transaction, answering with each product's result; {@code POST /products/imports} takes larger loads.
+     * The same holds for the batch update and delete below.
+     */
+    @PostMapping(value = "/products/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public List<ProductBatchResult> createProducts(InputStream body) {
+        return processBatch(body, productService::createProducts);
+    }
+
+    @PutMapping(value = "/products/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public List<ProductBatchResult> updateProducts(InputStream body) {
+        return processBatch(body, productService::updateProducts);
+    }
+
+    @DeleteMapping(value = "/products/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public List<ProductBatchResult> deleteProducts(InputStream body) {
+        return processBatch(body, productService::deleteProducts);
+    }
+
+    /**
+     * Imports a large file of new products, newline delimited JSON or CSV, in the background. Answers 202 once
+     * the upload is saved, with the import to follow at {@code Location}.
+     */
+    @PostMapping(value = "/products/imports", consumes = {MediaType.APPLICATION_NDJSON_VALUE, ProductImportFormat.CSV_VALUE})
+    public ResponseEntity<ProductImport> importProducts(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                                        InputStream body) throws IOException {
+        ProductImportFormat format = ProductImportFormat.fromMediaType(contentType)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNSUPPORTED_MEDIA_TYPE));
+
+        ProductImport productImport = productImporter.start(format, body);
+
+        return ResponseEntity.accepted()
+                .location(ServletUriComponentsBuilder.fromCurrentRequest()
+                        .path("/{id}")
+                        .buildAndExpand(productImport.getId())
+                        .toUri())
+                .body(productImport);
+    }
+
+    @GetMapping("/products/imports/{id}")
+    public ProductImport getImport(@PathVariable("id") String id) {
+        return productImporter.getImport(id)
+                .orElseThrow(() -> new EntityNotFoundException("Import [%s] not found", id));
+    }
+
+    /**
+     * Streams the catalog as JSON, Smile, CBOR or CSV depending on {@code Accept}, writing each row straight
+     * from the result set.
+     */
+    @GetMapping(value = "/products", produces = {MediaType.APPLICATION_JSON_VALUE, ProductExportFormat.SMILE_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE, ProductExportFormat.CSV_VALUE})
+    public ResponseEntity<StreamingResponseBody> getAllProducts(@RequestParam(value = "after", required = false) UUID after,
+                                                                @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                                WebRequest webRequest) {
+        ProductExportFormat exportFormat = ProductExportFormat.negotiate(accept);
+        String eTag = ProductETags.ofCatalog(productService.getCatalogRevision(), exportFormat);
+
+        if (webRequest.checkNotModified(eTag))
+            return null;
+
+        long changeSequence = productService.getPublishedChangeSequence();
+
+        StreamingResponseBody body = outputStream -> {
+            if (exportFormat == ProductExportFormat.CSV) {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+                productService.scanProducts(after, new CsvProductExporter(writer));
+                return;
+            }
+
+            try (JsonGenerator generator = jsonFactory(exportFormat).createGenerator(outputStream)) {
+                productService.scanProducts(after, new JacksonProductExporter(generator));
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .varyBy(HttpHeaders.ACCEPT)
+                .eTag(eTag)
+                .header(CHANGE_SEQUENCE, Long.toString(changeSequence))
+                .body(body);
+    }
+
+    @GetMapping(value = "/products", params = "limit")
+    public ResponseEntity<List<Product>> getProducts(@RequestParam("limit") int limit,
+                                                     @RequestParam(value = "after", required = false) UUID after,
+                                                     WebRequest webRequest) {
+        String eTag = ProductETags.ofCatalog(productService.getCatalogRevision());
+
+        if (webRequest.checkNotModified(eTag))
+            return null;
+
+        List<Product> products = productService.getProducts(after, limit);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(eTag);
+
+        if (products.size() == limit) {
+            String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("after", products.get(products.size() - 1).getId())
+                    .toUriString();
+            response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
         }
+
+        return response.body(products);
     }
 
-    @GetMapping("/products")
-    public List<Product> getAllProducts() {
-        return productService.getAllProducts();
+    /**
+     * Long-polls for the changes after sequence number {@code since}: answers as soon as there is one, or with
+     * none after the long-poll timeout. {@code Link: rel="next"} carries the sequence number to ask for next,
+     * and 410 means the changes have been pruned, so the reader has to download the catalog again. A poll that
+     * times out or goes away cancels its read, so the next publication runs no query for it.
+     */
+    @GetMapping(value = "/products/changes", produces = MediaType.APPLICATION_JSON_VALUE)
+    public DeferredResult<ResponseEntity<List<ProductChange>>> getChanges(@RequestParam("since") long since,
+                                                                          @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        CompletableFuture<ProductChangePage> page = productService.awaitChanges(since, limit);
+        UriComponentsBuilder uri = ServletUriComponentsBuilder.fromCurrentRequest();
+
+        DeferredResult<ResponseEntity<List<ProductChange>>> result = new DeferredResult<>(
+                changesProperties.getLongPollTimeout().toMillis(),
+                () -> changesResponse(new ProductChangePage(List.of(), since), uri.cloneBuilder()));
+
+        page.whenComplete((changes, error) -> {
+            if (error instanceof CancellationException)
+                return;
+            if (error != null)
+                result.setErrorResult(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Database operation failed", error));
+            else
+                result.setResult(changesResponse(changes, uri.cloneBuilder()));
+        });
+        result.onTimeout(() -> page.cancel(false));
+        result.onCompletion(() -> page.cancel(false));
+
+        return result;
     }
 
-    @GetMapping("/products/{id}")
-    public Product getProductById(@PathVariable("id") String id) {
-        try {
-            return productService.getProductById(id);
-        } catch (EntityNotFoundException e) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Entity not found", e);
+    /**
+     * Streams the changes after {@code since}, or after {@code Last-Event-ID} when reconnecting, as server-sent
+     * events until the stream timeout.
+     */
+    @GetMapping(value = "/products/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(@RequestParam(value = "since", required = false) Long since,
+                                    @RequestHeader(value = LAST_EVENT_ID, required = false) Long lastEventId) {
+        Long from = lastEventId != null ? lastEventId : since;
+        if (from == null)
+            throw new InvalidDataException("Missing change sequence");
+
+        SseEmitter emitter = new SseEmitter(changesProperties.getStreamTimeout().toMillis());
+        new ProductChangeStream(productService, emitter, from).start();
+        return emitter;
+    }
+
+    /**
+     * Searches by exact manufacturer, name prefix and price range, sorted by {@code sort} (a product property,
+     * prefixed with {@code -} for descending order) and paged by {@code limit} and {@code offset}.
+     */
+    @GetMapping("/products/search")
+    public ResponseEntity<List<Product>> searchProducts(@RequestParam(value = "manufacturer", required = false) String manufacturer,
+                                                        @RequestParam(value = "namePrefix", required = false) String namePrefix,
+                                                        @RequestParam(value = "minPrice", required = false) Double minPrice,
+                                                        @RequestParam(value = "maxPrice", required = false) Double maxPrice,
+                                                        @RequestParam(value = "sort", defaultValue = "id") String sort,
+                                                        @RequestParam(value = "limit", defaultValue = "100") int limit,
+                                                        @RequestParam(value = "offset", defaultValue = "0") long offset,
+                                                        WebRequest webRequest) {
+        String eTag = ProductETags.ofCatalog(productService.getCatalogRevision());
+
+        if (webRequest.checkNotModified(eTag))
+            return null;
+
+        boolean descending = sort.startsWith("-");
+        String property = descending ? sort.substring(1) : sort;
+
+        ProductSearch search = ProductSearch.builder()
+                .manufacturer(manufacturer)
+                .namePrefix(namePrefix)
+                .minPrice(minPrice)
+                .maxPrice(maxPrice)
+                .sortField(ProductSortField.fromProperty(property)
+                        .orElseThrow(() -> new InvalidDataException("Invalid sort [%s]", sort)))
+                .descending(descending)
+                .limit(limit)
+                .offset(offset)
+                .build();
+
+        List<Product> products = productService.searchProducts(search);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(eTag);
+
+        if (products.size() == limit) {
+            String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("offset", offset + limit)
+                    .toUriString();
+            response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
         }
+
+        return response.body(products);
+    }
+
+    /**
+     * Keyword search over product names and manufacturers, best matches first.
+     */
+    @GetMapping("/products/search/text")
+    public List<Product> searchProductsByText(@RequestParam("q") String query,
+                                              @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        return productService.searchProductsByText(query, limit);
+    }
+
+    /**
+     * Count and total, minimum, maximum and average price of all products, or of one manufacturer's, answered
+     * from statistics kept in memory rather than by reading the catalog.
+     */
+    @GetMapping("/products/stats")
+    public ProductStats getStats(@RequestParam(value = "manufacturer", required = false) String manufacturer) {
+        if (manufacturer == null)
+            return productService.getStats();
+
+        return productService.getStats(manufacturer);
+    }
+
+    /**
+     * The statistics of every manufacturer, ordered by manufacturer; {@code groupBy} only takes
+     * {@code manufacturer}.
+     */
+    @GetMapping(value = "/products/stats", params = "groupBy")
+    public List<ProductStats> getGroupedStats(@RequestParam("groupBy") String groupBy) {
+        if (!STATS_GROUP_BY_MANUFACTURER.equals(groupBy))
+            throw new InvalidDataException("Invalid groupBy [%s]", groupBy);
+
+        return productService.getStatsByManufacturer();
+    }
+
+    /**
+     * Answers {@code If-None-Match} with 304 before serializing, and without a database round trip when the
+     * product is cached.
+     */
+    @GetMapping("/products/{id}")
+    public ResponseEntity<Product> getProductById(@PathVariable("id") UUID id, WebRequest webRequest) {
+        Product product = productService.getProductById(id);
+        String eTag = ProductETags.ofVersion(product.getVersion());
+
+        if (webRequest.checkNotModified(eTag))
+            return null;
+
+        return ResponseEntity.ok().eTag(eTag).body(product);
     }
 
+    /**
+     * Deletes the product at the version given by {@code If-Match} or the optional body, or whatever version
+     * is current when neither is given.
+     */
     @DeleteMapping("/products/{id}")
-    public void deleteProduct(@PathVariable("id") String id) {
-        try {
-            productService.deleteProduct(id);
-        } catch (DatabaseOperationException e) {
-            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Database operation failed", e);
-        } catch (EntityNotFoundException e) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Entity not found", e);
-        }
+    public void deleteProduct(@PathVariable("id") UUID id,
+                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                              @RequestBody(required = false) Product product) {
+        Long version = ifMatch != null ? ProductETags.parseIfMatch(ifMatch)
+                : product != null && product.getVersion() != Product.NO_VERSION ? Long.valueOf(product.getVersion()) : null;
+        productService.deleteProduct(id, version);
     }
 
+    /**
+     * Updates the product at the version given by {@code If-Match}, falling back to the body's version, or
+     * whatever version is current when neither is given. With {@code Prefer: respond-async} and write-behind
+     * enabled, answers 202 once the update is journaled; it is written with the next flush, and an update that
+     * then loses the optimistic lock is dropped.
+     */
     @PutMapping("/products/{id}")
-    public Product updateProduct(@PathVariable("id") String id, @RequestBody Product product) {
-        try {
-            return productService.updateProduct(product, id);
-        } catch (DatabaseOperationException e) {
-            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Database operation failed", e);
-        } catch (EntityNotFoundException e) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Entity not found", e);
-        } catch (InvalidDataException e) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid data", e);
+    public ResponseEntity<Product> updateProduct(@PathVariable("id") UUID id,
+                                                 @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                 @RequestHeader(value = PREFER, required = false) String prefer,
+                                                 @RequestBody Product product) {
+        if (ifMatch != null) {
+            Long version = ProductETags.parseIfMatch(ifMatch);
+            product.setVersion(version == null ? Product.NO_VERSION : version);
+        }
+
+        if (prefersAsync(prefer) && productService.queueProductUpdate(product, id))
+            return ResponseEntity.accepted().header(PREFERENCE_APPLIED, RESPOND_ASYNC).build();
+
+        Product updatedProduct = productService.updateProduct(product, id);
+        return ResponseEntity.ok().eTag(ProductETags.ofVersion(updatedProduct.getVersion())).body(updatedProduct);
+    }
+
+    /**
+     * Reads either a JSON array or newline delimited JSON lazily, so the service can write chunks while the
+     * request body is still arriving.
+     */
+    private List<ProductBatchResult> processBatch(InputStream body, Function<Iterator<Product>, List<ProductBatchResult>> batch) {
+        try (MappingIterator<Product> products = objectMapper.readerFor(Product.class).readValues(body)) {
+            return batch.apply(new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    try {
+                        return products.hasNextValue();
+                    } catch (IOException e) {
+                        throw new InvalidDataException(e.getMessage());
+                    }
+                }
+
+                @Override
+                public Product next() {
+                    try {
+                        return products.nextValue();
+                    } catch (IOException e) {
+                        throw new InvalidDataException(e.getMessage());
+                    }
+                }
+            });
+        } catch (IOException e) {
+            throw new InvalidDataException(e.getMessage());
+        }
+    }
+
+    private static ResponseEntity<List<ProductChange>> changesResponse(ProductChangePage page, UriComponentsBuilder uri) {
+        String next = uri.replaceQueryParam("since", page.getNext()).toUriString();
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"")
+                .body(page.getChanges());
+    }
+
+    private static boolean prefersAsync(String prefer) {
+        if (prefer == null)
+            return false;
+
+        for (String preference : prefer.split(",")) {
+            if (preference.split(";")[0].trim().equalsIgnoreCase(RESPOND_ASYNC))
+                return true;
+        }
+
+        return false;
+    }
+
+    private JsonFactory jsonFactory(ProductExportFormat exportFormat) {
+        switch (exportFormat) {
+            case SMILE:
+                return smileFactory;
+            case CBOR:
+                return cborFactory;
+            default:
+                return objectMapper.getFactory();
         }
     }
 }
@@ -0,0 +1,53 @@
+package com.example.springbootcrudapp.controller;
+
+import com.example.springbootcrudapp.shared.InvalidDataException;
+
+import java.util.Locale;
+
+/**
+ * Product entity tags are the quoted product version, e.g. {@code "3"}. Listings are tagged with the catalog
+ * revision instead, prefixed so the two can never be confused.
+ */
+final class ProductETags {
+    static final String ANY = "*";
+
+    private ProductETags() {
+    }
+
+    static String ofVersion(long version) {
+        return "\"" + version + "\"";
+    }
+
+    static String ofCatalog(String revision) {
+        return "\"catalog-" + revision + "\"";
+    }
+
+    /**
+     * Tags each listing format apart, since its bytes differ from the JSON listing at the same revision.
+     */
+    static String ofCatalog(String revision, ProductExportFormat format) {
+        if (format == ProductExportFormat.JSON)
+            return ofCatalog(revision);
+
+        return ofCatalog(revision + "-" + format.name().toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Returns the version an {@code If-Match} header requires, or null when any version matches.
+     */
+    static Long parseIfMatch(String ifMatch) {
+        String value = ifMatch.trim();
+
+        if (ANY.equals(value))
+            return null;
+
+        if (value.length() < 3 || value.charAt(0) != '"' || value.charAt(value.length() - 1) != '"')
+            throw new InvalidDataException("Invalid If-Match header [%s]", ifMatch);
+
+        try {
+            return Long.parseLong(value.substring(1, value.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new InvalidDataException("Invalid If-Match header [%s]", ifMatch);
+        }
+    }
+}
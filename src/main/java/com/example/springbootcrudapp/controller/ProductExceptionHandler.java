@@ -0,0 +1,80 @@
+package com.example.springbootcrudapp.controller;
+
+import com.example.springbootcrudapp.shared.ChangeCursorExpiredException;
+import com.example.springbootcrudapp.shared.DatabaseOperationException;
+import com.example.springbootcrudapp.shared.EntityNotFoundException;
+import com.example.springbootcrudapp.shared.InvalidDataException;
+import com.example.springbootcrudapp.shared.VersionConflictException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.web.bind.MissingServletRequestParameterException;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
+
+import java.nio.charset.StandardCharsets;
+
+import static java.lang.String.format;
+
+/**
+ * Answers the errors of the product endpoints with responses built once at startup, instead of rethrowing them
+ * as {@code ResponseStatusException} and forwarding to the error page. Malformed ids, missing parameters and
+ * unreadable bodies are answered here too, since bad requests are what bots send most.
+ */
+@Slf4j
+@ControllerAdvice(assignableTypes = ProductController.class)
+public class ProductExceptionHandler {
+    private static final ResponseEntity<byte[]> INVALID_DATA = errorResponse(HttpStatus.BAD_REQUEST, "Invalid data");
+    private static final ResponseEntity<byte[]> NOT_FOUND = errorResponse(HttpStatus.NOT_FOUND, "Entity not found");
+    private static final ResponseEntity<byte[]> VERSION_CONFLICT = errorResponse(HttpStatus.CONFLICT, "Version conflict");
+    private static final ResponseEntity<byte[]> PRECONDITION_FAILED = errorResponse(HttpStatus.PRECONDITION_FAILED, "Precondition failed");
+    private static final ResponseEntity<byte[]> CHANGES_GONE = errorResponse(HttpStatus.GONE, "Changes no longer available");
+    private static final ResponseEntity<byte[]> DATABASE_FAILURE = errorResponse(HttpStatus.INTERNAL_SERVER_ERROR, "Database operation failed");
+
+    @ExceptionHandler({InvalidDataException.class, MethodArgumentTypeMismatchException.class,
+            MissingServletRequestParameterException.class, HttpMessageNotReadableException.class})
+    public ResponseEntity<byte[]> handleInvalidData() {
+        return INVALID_DATA;
+    }
+
+    @ExceptionHandler(EntityNotFoundException.class)
+    public ResponseEntity<byte[]> handleNotFound() {
+        return NOT_FOUND;
+    }
+
+    @ExceptionHandler(ChangeCursorExpiredException.class)
+    public ResponseEntity<byte[]> handleChangeCursorExpired() {
+        return CHANGES_GONE;
+    }
+
+    /**
+     * A stale {@code If-Match} fails the precondition; a stale version in the body is a conflict.
+     */
+    @ExceptionHandler(VersionConflictException.class)
+    public ResponseEntity<byte[]> handleVersionConflict(WebRequest webRequest) {
+        return webRequest.getHeader(HttpHeaders.IF_MATCH) != null ? PRECONDITION_FAILED : VERSION_CONFLICT;
+    }
+
+    @ExceptionHandler(DatabaseOperationException.class)
+    public ResponseEntity<byte[]> handleDatabaseOperationFailure(DatabaseOperationException e) {
+        log.error("Database operation failed", e);
+        return DATABASE_FAILURE;
+    }
+
+    /**
+     * Its headers are read-only and the body is never written to, so the response can be shared.
+     */
+    private static ResponseEntity<byte[]> errorResponse(HttpStatus status, String message) {
+        String body = format("{\"status\":%d,\"error\":\"%s\",\"message\":\"%s\"}",
+                status.value(), status.getReasonPhrase(), message);
+
+        return ResponseEntity.status(status)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
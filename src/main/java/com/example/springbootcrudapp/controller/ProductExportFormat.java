@@ -0,0 +1,55 @@
+package com.example.springbootcrudapp.controller;
+
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+import java.util.List;
+
+/**
+ * The representations GET /products can stream. JSON comes first so it wins for wildcard and missing
+ * {@code Accept} headers.
+ */
+enum ProductExportFormat {
+    JSON(MediaType.APPLICATION_JSON_VALUE),
+    SMILE(ProductExportFormat.SMILE_VALUE),
+    CBOR(MediaType.APPLICATION_CBOR_VALUE),
+    CSV(ProductExportFormat.CSV_VALUE);
+
+    static final String SMILE_VALUE = "application/x-jackson-smile";
+    static final String CSV_VALUE = "text/csv";
+
+    private final MediaType mediaType;
+
+    ProductExportFormat(String mediaType) {
+        this.mediaType = MediaType.parseMediaType(mediaType);
+    }
+
+    MediaType getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * Picks the format for the most specific, highest quality media type in the {@code Accept} header.
+     */
+    static ProductExportFormat negotiate(String accept) {
+        if (accept == null)
+            return JSON;
+
+        List<MediaType> mediaTypes;
+
+        try {
+            mediaTypes = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return JSON;
+        }
+
+        MediaType.sortBySpecificityAndQuality(mediaTypes);
+
+        for (MediaType mediaType : mediaTypes)
+            for (ProductExportFormat format : values())
+                if (mediaType.getQualityValue() > 0 && mediaType.isCompatibleWith(format.mediaType))
+                    return format;
+
+        return JSON;
+    }
+}
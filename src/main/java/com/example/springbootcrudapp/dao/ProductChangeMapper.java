@@ -0,0 +1,57 @@
+package com.example.springbootcrudapp.dao;
+
+import com.example.springbootcrudapp.model.Product;
+import com.example.springbootcrudapp.model.ProductChange;
+import com.example.springbootcrudapp.model.ProductChangeType;
+import org.jdbi.v3.core.mapper.RowMapper;
+import org.jdbi.v3.core.statement.StatementContext;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.UUID;
+
+/**
+ * Maps change log rows by column position, like {@link ProductMapper}.
+ */
+public class ProductChangeMapper implements RowMapper<ProductChange> {
+    @Override
+    public ProductChange map(ResultSet rs, StatementContext ctx) throws SQLException {
+        return specialize(rs, ctx).map(rs, ctx);
+    }
+
+    @Override
+    public RowMapper<ProductChange> specialize(ResultSet rs, StatementContext ctx) throws SQLException {
+        int sequence = rs.findColumn("sequence_number");
+        int type = rs.findColumn("change_type");
+        int id = rs.findColumn("product_id");
+        int version = rs.findColumn("version");
+        int productName = rs.findColumn("product_name");
+        int manufacturer = rs.findColumn("manufacturer");
+        int priceMinor = rs.findColumn("price_minor");
+        int changedAt = rs.findColumn("changed_at");
+
+        return (row, rowCtx) -> {
+            UUID productId = UuidColumnMapper.toUuid(row.getBytes(id));
+            long productVersion = row.getLong(version);
+            boolean hasVersion = !row.wasNull();
+            ProductChangeType changeType = ProductChangeType.valueOf(row.getString(type));
+
+            Product product = changeType == ProductChangeType.DELETED ? null : Product.builder()
+                    .id(productId)
+                    .version(productVersion)
+                    .productName(row.getString(productName))
+                    .manufacturer(row.getString(manufacturer))
+                    .priceMinor(row.getLong(priceMinor))
+                    .build();
+
+            return ProductChange.builder()
+                    .sequence(row.getLong(sequence))
+                    .type(changeType)
+                    .id(productId)
+                    .version(hasVersion ? productVersion : null)
+                    .changedAt(row.getTimestamp(changedAt).toInstant())
+                    .product(product)
+                    .build();
+        };
+    }
+}
@@ -1,36 +1,278 @@
 package com.example.springbootcrudapp.dao;
 
 import com.example.springbootcrudapp.model.Product;
-import org.jdbi.v3.sqlobject.config.RegisterBeanMapper;
+import com.example.springbootcrudapp.model.ProductChange;
+import com.example.springbootcrudapp.model.ProductChangeType;
+import com.example.springbootcrudapp.model.ProductSearch;
+import com.example.springbootcrudapp.model.ProductStats;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.statement.Query;
+import org.jdbi.v3.sqlobject.config.KeyColumn;
+import org.jdbi.v3.sqlobject.config.RegisterRowMapper;
+import org.jdbi.v3.sqlobject.config.ValueColumn;
+import org.jdbi.v3.sqlobject.customizer.AllowUnusedBindings;
 import org.jdbi.v3.sqlobject.customizer.Bind;
 import org.jdbi.v3.sqlobject.customizer.BindBean;
+import org.jdbi.v3.sqlobject.customizer.BindList;
+import org.jdbi.v3.sqlobject.customizer.Define;
+import org.jdbi.v3.sqlobject.customizer.FetchSize;
+import org.jdbi.v3.sqlobject.statement.GetGeneratedKeys;
+import org.jdbi.v3.sqlobject.statement.SqlBatch;
 import org.jdbi.v3.sqlobject.statement.SqlQuery;
 import org.jdbi.v3.sqlobject.statement.SqlUpdate;
 import org.jdbi.v3.sqlobject.transaction.Transaction;
+import org.jdbi.v3.sqlobject.transaction.Transactional;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static java.lang.String.format;
+
+/**
+ * Used as a single on-demand instance (see {@code JdbiConfiguration}): each call runs on its own handle, while
+ * default methods and {@link #inTransaction} keep one handle for everything they call.
+ */
+@RegisterRowMapper(ProductMapper.class)
+public interface ProductDao extends Transactional<ProductDao> {
+    int STREAM_FETCH_SIZE = 1000;
 
-@RegisterBeanMapper(Product.class)
-public interface ProductDao {
     @Transaction
-    @SqlUpdate("INSERT INTO products (id, version, product_name, manufacturer, price) " +
-            "VALUES (:id, :version, :productName, :manufacturer, :price)")
+    @SqlUpdate("INSERT INTO products (id, version, product_name, manufacturer, price_minor) " +
+            "VALUES (:id, :version, :productName, :manufacturer, :priceMinor)")
     void createProduct(@BindBean Product product);
 
     @Transaction
+    @GetGeneratedKeys("version")
     @SqlUpdate("UPDATE products " +
-            "SET products.version = :version + 1, products.product_name = :productName, products.manufacturer = :manufacturer, products.price = :price " +
+            "SET products.version = :version + 1, products.product_name = :productName, products.manufacturer = :manufacturer, products.price_minor = :priceMinor " +
             "WHERE products.id = :id AND products.version = :version")
-    boolean updateProduct(@BindBean Product product);
+    Long updateProduct(@BindBean Product product);
+
+    @Transaction
+    @GetGeneratedKeys("version")
+    @SqlUpdate("UPDATE products " +
+            "SET products.version = products.version + 1, products.product_name = :productName, products.manufacturer = :manufacturer, products.price_minor = :priceMinor " +
+            "WHERE products.id = :id")
+    Long updateProductIgnoringVersion(@BindBean Product product);
 
     @Transaction
     @SqlUpdate("DELETE FROM products WHERE products.id = :id AND products.version = :version")
-    boolean deleteProduct(@Bind("id") String id, @Bind("version") Long version);
+    boolean deleteProduct(@Bind("id") UUID id, @Bind("version") Long version);
+
+    @Transaction
+    @SqlUpdate("DELETE FROM products WHERE products.id = :id")
+    boolean deleteProductIgnoringVersion(@Bind("id") UUID id);
+
+    @SqlBatch("INSERT INTO products (id, version, product_name, manufacturer, price_minor) " +
+            "VALUES (:id, :version, :productName, :manufacturer, :priceMinor)")
+    void createProducts(@BindBean Collection<Product> products);
+
+    @SqlBatch("UPDATE products " +
+            "SET products.version = :version + 1, products.product_name = :productName, products.manufacturer = :manufacturer, products.price_minor = :priceMinor " +
+            "WHERE products.id = :id AND products.version = :version")
+    int[] updateProducts(@BindBean Collection<Product> products);
+
+    @SqlBatch("UPDATE products " +
+            "SET products.version = products.version + 1, products.product_name = :productName, products.manufacturer = :manufacturer, products.price_minor = :priceMinor " +
+            "WHERE products.id = :id")
+    int[] updateProductsIgnoringVersion(@BindBean Collection<Product> products);
+
+    @SqlBatch("DELETE FROM products WHERE products.id = :id AND products.version = :version")
+    int[] deleteProducts(@BindBean Collection<Product> products);
+
+    /**
+     * Stores the products as given, inserted or overwritten, for copying rows to a replica.
+     */
+    @SqlBatch("MERGE INTO products (id, version, product_name, manufacturer, price_minor) KEY (id) " +
+            "VALUES (:id, :version, :productName, :manufacturer, :priceMinor)")
+    void replicateProducts(@BindBean Collection<Product> products);
+
+    @SqlBatch("DELETE FROM products WHERE products.id = :id")
+    void replicateDeletions(@Bind("id") Collection<UUID> ids);
+
+    /**
+     * Logs the products as they are stored after the statements before it in the same transaction.
+     */
+    @SqlBatch("INSERT INTO product_changes (sequence_number, change_type, product_id, version, product_name, manufacturer, price_minor, changed_at) " +
+            "SELECT :sequence, :type, products.id, products.version, products.product_name, products.manufacturer, products.price_minor, CURRENT_TIMESTAMP " +
+            "FROM products WHERE products.id = :id")
+    void appendChanges(@Bind("sequence") List<Long> sequences, @Bind("type") ProductChangeType type,
+                       @BindBean Collection<Product> products);
+
+    @SqlBatch("INSERT INTO product_changes (sequence_number, change_type, product_id, version, changed_at) " +
+            "VALUES (:sequence, 'DELETED', :id, NULLIF(:version, 0), CURRENT_TIMESTAMP)")
+    void appendDeletions(@Bind("sequence") List<Long> sequences, @BindBean Collection<Product> products);
+
+    @RegisterRowMapper(ProductChangeMapper.class)
+    @SqlQuery("SELECT * FROM product_changes " +
+            "WHERE product_changes.sequence_number > :after AND product_changes.sequence_number <= :through " +
+            "ORDER BY product_changes.sequence_number LIMIT :limit")
+    List<ProductChange> getChanges(@Bind("after") long after, @Bind("through") long through, @Bind("limit") int limit);
+
+    @SqlQuery("SELECT COALESCE(MIN(product_changes.sequence_number), 1) FROM product_changes")
+    long getFirstChangeSequence();
+
+    @SqlQuery("SELECT COALESCE(MAX(product_changes.sequence_number), 0) FROM product_changes")
+    long getLastChangeSequence();
+
+    /**
+     * Deletes changes made before the given time and up to the given sequence number, always keeping the
+     * latest one so sequence numbers carry on from it after a restart.
+     */
+    @SqlUpdate("DELETE FROM product_changes WHERE product_changes.changed_at < :before " +
+            "AND product_changes.sequence_number <= :through " +
+            "AND product_changes.sequence_number < (SELECT MAX(sequence_number) FROM product_changes)")
+    int deleteChangesBefore(@Bind("before") Instant before, @Bind("through") long through);
+
+    @SqlQuery("SELECT product_outbox_relays.relayed_through FROM product_outbox_relays WHERE product_outbox_relays.relay = :relay")
+    Optional<Long> getRelayedThrough(@Bind("relay") String relay);
+
+    @SqlUpdate("MERGE INTO product_outbox_relays (relay, relayed_through) KEY (relay) VALUES (:relay, :relayedThrough)")
+    void saveRelayedThrough(@Bind("relay") String relay, @Bind("relayedThrough") long relayedThrough);
+
+    /**
+     * The products changed last, most recent first, as far as the change log reaches back.
+     */
+    @SqlQuery("SELECT product_changes.product_id FROM product_changes GROUP BY product_changes.product_id " +
+            "ORDER BY MAX(product_changes.sequence_number) DESC LIMIT :limit")
+    List<UUID> getRecentlyChangedIds(@Bind("limit") int limit);
 
-    @SqlQuery("SELECT * FROM products")
-    List<Product> getAllProducts();
+    @RegisterRowMapper(ProductStatsMapper.class)
+    @SqlQuery("SELECT products.manufacturer, COUNT(*) AS product_count, SUM(products.price_minor) AS total_price_minor, " +
+            "MIN(products.price_minor) AS min_price_minor, MAX(products.price_minor) AS max_price_minor " +
+            "FROM products GROUP BY products.manufacturer")
+    List<ProductStats> getStatsByManufacturer();
+
+    @SqlQuery("SELECT products.id FROM products WHERE products.id IN (<ids>)")
+    List<UUID> getExistingIds(@BindList("ids") Collection<UUID> ids);
+
+    @SqlQuery("SELECT products.id, products.version FROM products WHERE products.id IN (<ids>)")
+    @KeyColumn("id")
+    @ValueColumn("version")
+    Map<UUID, Long> getProductVersions(@BindList("ids") Collection<UUID> ids);
+
+    @SqlQuery("SELECT * FROM products WHERE products.id IN (<ids>)")
+    List<Product> getProductsByIds(@BindList("ids") Collection<UUID> ids);
+
+    @SqlQuery("SELECT * FROM products ORDER BY products.id LIMIT :limit")
+    List<Product> getFirstProducts(@Bind("limit") int limit);
+
+    @SqlQuery("SELECT * FROM products WHERE products.id > :after ORDER BY products.id LIMIT :limit")
+    List<Product> getProductsAfter(@Bind("after") UUID after, @Bind("limit") int limit);
+
+    @FetchSize(STREAM_FETCH_SIZE)
+    @SqlQuery("SELECT * FROM products ORDER BY products.id")
+    Stream<Product> streamAllProducts();
+
+    @FetchSize(STREAM_FETCH_SIZE)
+    @SqlQuery("SELECT * FROM products WHERE products.id > :after ORDER BY products.id")
+    Stream<Product> streamProductsAfter(@Bind("after") UUID after);
+
+    /**
+     * Takes its WHERE and ORDER BY clauses from {@link #searchProducts(ProductSearch)}, which builds them from
+     * fixed fragments only; every value is bound.
+     */
+    @AllowUnusedBindings
+    @SqlQuery("SELECT * FROM products WHERE <conditions> ORDER BY <orderBy> LIMIT :limit OFFSET :offset")
+    List<Product> searchProducts(@Define("conditions") String conditions, @Define("orderBy") String orderBy,
+                                 @BindBean ProductSearch search, @Bind("namePattern") String namePattern);
 
     @SqlQuery("SELECT * FROM products WHERE products.id = :id")
-    Optional<Product> getProductById(@Bind("id") String id);
+    Optional<Product> getProductById(@Bind("id") UUID id);
+
+    @SqlQuery("SELECT products.version FROM products WHERE products.id = :id")
+    Optional<Long> getProductVersion(@Bind("id") UUID id);
+
+    /**
+     * Streams products ordered by id to the consumer. As a default method it runs on one handle, which stays
+     * open until the stream has been consumed.
+     */
+    default void forEachProduct(UUID after, Consumer<Product> consumer) {
+        try (Stream<Product> products = after == null ? streamAllProducts() : streamProductsAfter(after)) {
+            products.forEach(consumer);
+        }
+    }
+
+    /**
+     * Hands the same ordered rows as {@link #forEachProduct} to the handler unmapped, so exports can write
+     * columns without building a product per row.
+     */
+    default void scanProducts(UUID after, ProductRowHandler handler) {
+        String sql = after == null
+                ? "SELECT * FROM products ORDER BY products.id"
+                : "SELECT * FROM products WHERE products.id > :after ORDER BY products.id";
+
+        try (Query query = getHandle().createQuery(sql)) {
+            if (after != null)
+                query.bind("after", after);
+
+            query.setFetchSize(STREAM_FETCH_SIZE).scanResultSet((results, ctx) -> {
+                handler.handle(results.get());
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Reads every row and every index entry of the products table once, so that a file-backed database has
+     * their pages cached before the first request. Index names come from the schema, not from callers.
+     * Returns the number of indexes read.
+     */
+    default int warmUpProducts() {
+        Handle handle = getHandle();
+        handle.createQuery("SELECT COUNT(*) FROM products WHERE products.version >= 0").mapTo(Long.class).one();
+
+        List<String[]> indexes = handle.createQuery("SELECT INDEX_NAME, COLUMN_NAME FROM INFORMATION_SCHEMA.INDEXES " +
+                "WHERE TABLE_NAME = 'PRODUCTS' AND ORDINAL_POSITION = 1")
+                .map((rs, ctx) -> new String[]{rs.getString(1), rs.getString(2)})
+                .list();
+
+        for (String[] index : indexes) {
+            handle.createQuery(format("SELECT COUNT(*) FROM products USE INDEX (\"%s\") WHERE \"%s\" IS NOT NULL",
+                    index[0], index[1])).mapTo(Long.class).one();
+        }
+
+        return indexes.size();
+    }
+
+    default List<Product> searchProducts(ProductSearch search) {
+        List<String> conditions = new ArrayList<>();
+
+        if (search.getManufacturer() != null)
+            conditions.add("products.manufacturer = :manufacturer");
+        if (search.getNamePrefix() != null)
+            conditions.add("products.product_name LIKE :namePattern ESCAPE '!'");
+        if (search.getMinPrice() != null)
+            conditions.add("products.price_minor >= :minPriceMinor");
+        if (search.getMaxPrice() != null)
+            conditions.add("products.price_minor <= :maxPriceMinor");
+
+        String direction = search.isDescending() ? " DESC" : "";
+        String orderBy = "products.id" + direction;
+
+        switch (search.getSortField()) {
+            case PRODUCT_NAME:
+                orderBy = "products.product_name" + direction + ", " + orderBy;
+                break;
+            case MANUFACTURER:
+                orderBy = "products.manufacturer" + direction + ", " + orderBy;
+                break;
+            case PRICE:
+                orderBy = "products.price_minor" + direction + ", " + orderBy;
+                break;
+        }
+
+        String namePattern = search.getNamePrefix() == null ? null
+                : search.getNamePrefix().replaceAll("[!%_]", "!$0") + "%";
+
+        return searchProducts(conditions.isEmpty() ? "TRUE" : String.join(" AND ", conditions), orderBy,
+                search, namePattern);
+    }
 }
@@ -0,0 +1,36 @@
+package com.example.springbootcrudapp.dao;
+
+import com.example.springbootcrudapp.model.Product;
+import org.jdbi.v3.core.mapper.RowMapper;
+import org.jdbi.v3.core.statement.StatementContext;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps product rows by column position. The positions are looked up once per result set in
+ * {@link #specialize}, instead of the per-query reflection and column matching of a bean mapper.
+ */
+public class ProductMapper implements RowMapper<Product> {
+    @Override
+    public Product map(ResultSet rs, StatementContext ctx) throws SQLException {
+        return specialize(rs, ctx).map(rs, ctx);
+    }
+
+    @Override
+    public RowMapper<Product> specialize(ResultSet rs, StatementContext ctx) throws SQLException {
+        int id = rs.findColumn("id");
+        int version = rs.findColumn("version");
+        int productName = rs.findColumn("product_name");
+        int manufacturer = rs.findColumn("manufacturer");
+        int priceMinor = rs.findColumn("price_minor");
+
+        return (row, rowCtx) -> Product.builder()
+                .id(UuidColumnMapper.toUuid(row.getBytes(id)))
+                .version(row.getLong(version))
+                .productName(row.getString(productName))
+                .manufacturer(row.getString(manufacturer))
+                .priceMinor(row.getLong(priceMinor))
+                .build();
+    }
+}
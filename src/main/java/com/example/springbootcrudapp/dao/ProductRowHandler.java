@@ -0,0 +1,13 @@
+package com.example.springbootcrudapp.dao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Reads product rows straight from the result set, positioned before the first row, for callers that never
+ * need {@code Product} objects.
+ */
+@FunctionalInterface
+public interface ProductRowHandler {
+    void handle(ResultSet rs) throws SQLException;
+}
@@ -0,0 +1,24 @@
+package com.example.springbootcrudapp.dao;
+
+import com.example.springbootcrudapp.model.ProductStats;
+import org.jdbi.v3.core.mapper.RowMapper;
+import org.jdbi.v3.core.statement.StatementContext;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps the rows of {@link ProductDao#getStatsByManufacturer()}.
+ */
+public class ProductStatsMapper implements RowMapper<ProductStats> {
+    @Override
+    public ProductStats map(ResultSet rs, StatementContext ctx) throws SQLException {
+        return ProductStats.builder()
+                .manufacturer(rs.getString("manufacturer"))
+                .count(rs.getLong("product_count"))
+                .totalPriceMinor(rs.getLong("total_price_minor"))
+                .minPriceMinor(rs.getLong("min_price_minor"))
+                .maxPriceMinor(rs.getLong("max_price_minor"))
+                .build();
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.springbootcrudapp.dao;
+
+import org.jdbi.v3.core.argument.AbstractArgumentFactory;
+import org.jdbi.v3.core.argument.Argument;
+import org.jdbi.v3.core.config.ConfigRegistry;
+
+import java.nio.ByteBuffer;
+import java.sql.Types;
+import java.util.UUID;
+
+/**
+ * Binds ids to the {@code BINARY(16)} id column as the UUID's two longs, most significant first.
+ */
+public class UuidArgumentFactory extends AbstractArgumentFactory<UUID> {
+    public UuidArgumentFactory() {
+        super(Types.BINARY);
+    }
+
+    @Override
+    protected Argument build(UUID value, ConfigRegistry config) {
+        byte[] bytes = toBytes(value);
+        return (position, statement, ctx) -> statement.setBytes(position, bytes);
+    }
+
+    static byte[] toBytes(UUID value) {
+        return ByteBuffer.allocate(16)
+                .putLong(value.getMostSignificantBits())
+                .putLong(value.getLeastSignificantBits())
+                .array();
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.springbootcrudapp.dao;
+
+import org.jdbi.v3.core.mapper.ColumnMapper;
+import org.jdbi.v3.core.statement.StatementContext;
+
+import java.nio.ByteBuffer;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.UUID;
+
+/**
+ * Reads ids written by {@link UuidArgumentFactory} back from the {@code BINARY(16)} id column.
+ */
+public class UuidColumnMapper implements ColumnMapper<UUID> {
+    @Override
+    public UUID map(ResultSet rs, int columnNumber, StatementContext ctx) throws SQLException {
+        return toUuid(rs.getBytes(columnNumber));
+    }
+
+    public static UUID toUuid(byte[] bytes) {
+        if (bytes == null)
+            return null;
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
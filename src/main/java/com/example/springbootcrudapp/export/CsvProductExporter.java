@@ -0,0 +1,78 @@
+package com.example.springbootcrudapp.export;
+
+import com.example.springbootcrudapp.dao.ProductRowHandler;
+import com.example.springbootcrudapp.dao.UuidColumnMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Writes product rows as RFC 4180 CSV with a header line. Prices are written from their minor units with
+ * exactly two decimals, so they are never converted through a double.
+ */
+public class CsvProductExporter implements ProductRowHandler {
+    private static final String HEADER = "id,version,productName,manufacturer,price";
+    private static final String LINE_END = "\r\n";
+
+    private final Writer writer;
+
+    public CsvProductExporter(Writer writer) {
+        this.writer = writer;
+    }
+
+    @Override
+    public void handle(ResultSet rs) throws SQLException {
+        int id = rs.findColumn("id");
+        int version = rs.findColumn("version");
+        int productName = rs.findColumn("product_name");
+        int manufacturer = rs.findColumn("manufacturer");
+        int priceMinor = rs.findColumn("price_minor");
+
+        try {
+            writer.write(HEADER);
+            writer.write(LINE_END);
+
+            while (rs.next()) {
+                writer.write(UuidColumnMapper.toUuid(rs.getBytes(id)).toString());
+                writer.write(',');
+                writer.write(Long.toString(rs.getLong(version)));
+                writer.write(',');
+                writeField(rs.getString(productName));
+                writer.write(',');
+                writeField(rs.getString(manufacturer));
+                writer.write(',');
+                writePrice(rs.getLong(priceMinor));
+                writer.write(LINE_END);
+            }
+
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writePrice(long priceMinor) throws IOException {
+        long cents = Math.abs(priceMinor % 100);
+
+        if (priceMinor < 0)
+            writer.write('-');
+
+        writer.write(Long.toString(Math.abs(priceMinor / 100)));
+        writer.write(cents < 10 ? ".0" : ".");
+        writer.write(Long.toString(cents));
+    }
+
+    private void writeField(String value) throws IOException {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.springbootcrudapp.export;
+
+import com.example.springbootcrudapp.dao.ProductRowHandler;
+import com.example.springbootcrudapp.dao.UuidColumnMapper;
+import com.example.springbootcrudapp.model.Product;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Writes product rows as an array of objects shaped like {@code Product}, through any Jackson generator, so
+ * one exporter serves JSON, Smile and CBOR. Prices are written as binary doubles wherever the format has them.
+ */
+public class JacksonProductExporter implements ProductRowHandler {
+    private final JsonGenerator generator;
+
+    public JacksonProductExporter(JsonGenerator generator) {
+        this.generator = generator;
+    }
+
+    @Override
+    public void handle(ResultSet rs) throws SQLException {
+        int id = rs.findColumn("id");
+        int version = rs.findColumn("version");
+        int productName = rs.findColumn("product_name");
+        int manufacturer = rs.findColumn("manufacturer");
+        int priceMinor = rs.findColumn("price_minor");
+
+        try {
+            generator.writeStartArray();
+
+            while (rs.next()) {
+                generator.writeStartObject();
+                generator.writeStringField("id", UuidColumnMapper.toUuid(rs.getBytes(id)).toString());
+                generator.writeNumberField("version", rs.getLong(version));
+                generator.writeStringField("productName", rs.getString(productName));
+                generator.writeStringField("manufacturer", rs.getString(manufacturer));
+                generator.writeNumberField("price", Product.toPrice(rs.getLong(priceMinor)));
+                generator.writeEndObject();
+            }
+
+            generator.writeEndArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
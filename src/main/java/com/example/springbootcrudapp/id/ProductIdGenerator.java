@@ -0,0 +1,10 @@
+package com.example.springbootcrudapp.id;
+
+import java.util.UUID;
+
+/**
+ * Supplies ids for new products. Implementations are called concurrently and must not block.
+ */
+public interface ProductIdGenerator {
+    UUID nextId();
+}
@@ -0,0 +1,13 @@
+package com.example.springbootcrudapp.id;
+
+import java.util.UUID;
+
+/**
+ * Random (version 4) UUIDs from {@link UUID#randomUUID()}, drawn from the shared {@code SecureRandom}.
+ */
+public class RandomProductIdGenerator implements ProductIdGenerator {
+    @Override
+    public UUID nextId() {
+        return UUID.randomUUID();
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.springbootcrudapp.importer;
+
+import org.springframework.http.MediaType;
+
+import java.util.Optional;
+
+/**
+ * The formats an import reads: newline delimited JSON, one product object per line, or CSV with a header
+ * line naming at least the {@code productName}, {@code manufacturer} and {@code price} columns, such as the
+ * CSV export of {@code GET /products}.
+ */
+public enum ProductImportFormat {
+    NDJSON(MediaType.APPLICATION_NDJSON_VALUE, ".ndjson"),
+    CSV(ProductImportFormat.CSV_VALUE, ".csv");
+
+    public static final String CSV_VALUE = "text/csv";
+
+    private final MediaType mediaType;
+    private final String extension;
+
+    ProductImportFormat(String mediaType, String extension) {
+        this.mediaType = MediaType.parseMediaType(mediaType);
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public static Optional<ProductImportFormat> fromMediaType(MediaType mediaType) {
+        for (ProductImportFormat format : values())
+            if (format.mediaType.isCompatibleWith(mediaType))
+                return Optional.of(format);
+
+        return Optional.empty();
+    }
+
+    /**
+     * CSV for {@code .csv} files, newline delimited JSON for any other.
+     */
+    public static ProductImportFormat fromFileName(String fileName) {
+        return fileName.toLowerCase().endsWith(CSV.extension) ? CSV : NDJSON;
+    }
+}
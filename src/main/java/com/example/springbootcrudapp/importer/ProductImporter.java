@@ -0,0 +1,553 @@
+package com.example.springbootcrudapp.importer;
+
+import com.example.springbootcrudapp.model.Product;
+import com.example.springbootcrudapp.model.ProductImport;
+import com.example.springbootcrudapp.model.ProductImportStatus;
+import com.example.springbootcrudapp.service.ProductService;
+import com.example.springbootcrudapp.shared.InvalidDataException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.lang.String.format;
+
+/**
+ * Imports files of new products through a bounded pipeline: one thread reads records, several parse and
+ * validate them with the rules of {@link ProductService}, and one gives them ids and inserts them in JDBC
+ * batches, one transaction per chunk. The queues between the stages hold a few chunks each, so a slow
+ * database slows down reading instead of filling the heap. Rejected rows are written with the reason to a
+ * dead-letter file next to the import, and the rest of the file is still imported.
+ */
+@Slf4j
+public class ProductImporter implements Closeable {
+    private static final String DEAD_LETTER_SUFFIX = ".rejected.ndjson";
+    private static final long QUEUE_TIMEOUT_MILLIS = 100;
+    private static final List<String> CSV_COLUMNS = List.of("productName", "manufacturer", "price");
+    private static final List<Record> END_OF_RECORDS = new ArrayList<>();
+    private static final List<Parsed> END_OF_PRODUCTS = new ArrayList<>();
+
+    private final ProductService productService;
+    private final ObjectMapper objectMapper;
+    private final Path directory;
+    private final int parallelism;
+    private final int chunkSize;
+    private final int queueCapacity;
+    private final Duration progressInterval;
+    private final ExecutorService executor;
+    private final Map<String, Job> imports;
+
+    private final Counter importedRows;
+    private final Counter rejectedRows;
+
+    public ProductImporter(ProductService productService, ObjectMapper objectMapper, Path directory,
+                           int parallelism, int chunkSize, int queueCapacity, int maxRetainedImports,
+                           Duration progressInterval, MeterRegistry meterRegistry) {
+        this.productService = productService;
+        this.objectMapper = objectMapper;
+        this.directory = directory;
+        this.parallelism = parallelism;
+        this.chunkSize = chunkSize;
+        this.queueCapacity = queueCapacity;
+        this.progressInterval = progressInterval;
+        this.imports = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Job> eldest) {
+                return size() > maxRetainedImports;
+            }
+        };
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("product-import-");
+        threadFactory.setDaemon(true);
+        this.executor = Executors.newCachedThreadPool(threadFactory);
+
+        this.importedRows = meterRegistry.counter("product.import.rows", "result", "imported");
+        this.rejectedRows = meterRegistry.counter("product.import.rows", "result", "rejected");
+    }
+
+    /**
+     * Saves the upload to the import directory and imports it in the background; the file is deleted once
+     * imported. Returns the import as started.
+     */
+    public ProductImport start(ProductImportFormat format, InputStream body) throws IOException {
+        String id = UUID.randomUUID().toString();
+        Path file = directory.resolve(id + format.getExtension());
+
+        Files.createDirectories(directory);
+        Files.copy(body, file);
+
+        return submit(new Job(id, format, file, true)).snapshot();
+    }
+
+    /**
+     * Imports a file, waiting until it is done.
+     */
+    public ProductImport importFile(ProductImportFormat format, Path file) throws IOException {
+        Files.createDirectories(directory);
+
+        Job job = submit(new Job(UUID.randomUUID().toString(), format, file, false));
+        job.done.join();
+        return job.snapshot();
+    }
+
+    public Optional<ProductImport> getImport(String id) {
+        synchronized (imports) {
+            return Optional.ofNullable(imports.get(id)).map(Job::snapshot);
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private Job submit(Job job) {
+        synchronized (imports) {
+            imports.put(job.id, job);
+        }
+
+        executor.execute(() -> run(job));
+        return job;
+    }
+
+    private void run(Job job) {
+        BlockingQueue<List<Record>> records = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<List<Parsed>> products = new ArrayBlockingQueue<>(queueCapacity);
+
+        try (DeadLetters deadLetters = new DeadLetters(job)) {
+            List<Future<?>> parsers = new ArrayList<>(parallelism);
+
+            for (int i = 0; i < parallelism; i++)
+                parsers.add(executor.submit(stage(job, () -> parse(job, records, products, deadLetters))));
+
+            Future<?> writer = executor.submit(stage(job, () -> write(job, products, deadLetters)));
+
+            stage(job, () -> {
+                read(job, records);
+
+                for (int i = 0; i < parallelism; i++)
+                    put(records, END_OF_RECORDS, job);
+            }).run();
+
+            for (Future<?> parser : parsers)
+                parser.get();
+
+            stage(job, () -> put(products, END_OF_PRODUCTS, job)).run();
+            writer.get();
+        } catch (IOException | ExecutionException e) {
+            job.fail(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.fail(e);
+        } finally {
+            finish(job);
+        }
+    }
+
+    /**
+     * Reads the file into chunks of records, one line each, or for CSV as many lines as a quoted field spans.
+     */
+    private void read(Job job, BlockingQueue<List<Record>> records) throws IOException, InterruptedException {
+        try (BufferedReader reader = Files.newBufferedReader(job.file, StandardCharsets.UTF_8)) {
+            if (job.format == ProductImportFormat.CSV)
+                job.columns = readHeader(reader);
+
+            List<Record> chunk = new ArrayList<>(chunkSize);
+            String row;
+
+            while ((row = readRecord(reader, job.format)) != null) {
+                if (row.isBlank())
+                    continue;
+
+                chunk.add(new Record(job.read.incrementAndGet(), row));
+
+                if (chunk.size() == chunkSize) {
+                    put(records, chunk, job);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+
+            if (!chunk.isEmpty())
+                put(records, chunk, job);
+        }
+    }
+
+    private void parse(Job job, BlockingQueue<List<Record>> records, BlockingQueue<List<Parsed>> products,
+                       DeadLetters deadLetters) throws IOException, InterruptedException {
+        for (List<Record> chunk = take(records, job); chunk != END_OF_RECORDS; chunk = take(records, job)) {
+            List<Parsed> parsed = new ArrayList<>(chunk.size());
+
+            for (Record record : chunk) {
+                try {
+                    Product product = job.format == ProductImportFormat.CSV
+                            ? parseCsv(record.row, job.columns)
+                            : parseJson(record.row);
+
+                    productService.validateNewProduct(product);
+                    parsed.add(new Parsed(record, product));
+                } catch (InvalidDataException e) {
+                    deadLetters.reject(record, e.getMessage());
+                }
+            }
+
+            if (!parsed.isEmpty())
+                put(products, parsed, job);
+        }
+    }
+
+    private void write(Job job, BlockingQueue<List<Parsed>> products, DeadLetters deadLetters)
+            throws IOException, InterruptedException {
+        long nextProgress = System.nanoTime() + progressInterval.toNanos();
+
+        for (List<Parsed> chunk = take(products, job); chunk != END_OF_PRODUCTS; chunk = take(products, job)) {
+            List<Product> batch = new ArrayList<>(chunk.size());
+
+            for (Parsed parsed : chunk)
+                batch.add(parsed.product);
+
+            try {
+                productService.importProducts(batch);
+                job.imported.addAndGet(batch.size());
+                importedRows.increment(batch.size());
+            } catch (RuntimeException e) {
+                log.warn("Could not insert {} rows of import [{}]", batch.size(), job.id, e);
+
+                for (Parsed parsed : chunk)
+                    deadLetters.reject(parsed.record, format("Not inserted: %s", e.getMessage()));
+            }
+
+            if (System.nanoTime() - nextProgress >= 0) {
+                ProductImport progress = job.snapshot();
+                log.info("Import [{}]: {} rows read, {} imported, {} rejected, {} rows/s", job.id,
+                        progress.getRowsRead(), progress.getRowsImported(), progress.getRowsRejected(),
+                        Math.round(progress.getRowsPerSecond()));
+                nextProgress = System.nanoTime() + progressInterval.toNanos();
+            }
+        }
+    }
+
+    private void finish(Job job) {
+        job.elapsedNanos = System.nanoTime() - job.startNanos;
+        job.finishedAt = Instant.now();
+        job.status = job.failure.get() == null ? ProductImportStatus.COMPLETED : ProductImportStatus.FAILED;
+
+        if (job.deleteFile) {
+            try {
+                Files.deleteIfExists(job.file);
+            } catch (IOException e) {
+                log.warn("Could not delete the uploaded import {}", job.file, e);
+            }
+        }
+
+        ProductImport result = job.snapshot();
+
+        if (job.status == ProductImportStatus.FAILED)
+            log.warn("Import [{}] failed after {} rows: {}", job.id, result.getRowsRead(), result.getMessage());
+        else
+            log.info("Import [{}] imported {} products and rejected {} in {} ms, {} rows/s", job.id,
+                    result.getRowsImported(), result.getRowsRejected(), job.elapsedNanos / 1_000_000,
+                    Math.round(result.getRowsPerSecond()));
+
+        job.done.complete(null);
+    }
+
+    private Product parseJson(String row) {
+        Product product;
+
+        try {
+            product = objectMapper.readValue(row, Product.class);
+        } catch (JsonProcessingException e) {
+            throw new InvalidDataException("Invalid JSON: %s", e.getOriginalMessage());
+        }
+
+        if (product == null)
+            throw new InvalidDataException("Missing product");
+
+        return Product.builder()
+                .productName(product.getProductName())
+                .manufacturer(product.getManufacturer())
+                .priceMinor(product.getPriceMinor())
+                .build();
+    }
+
+    private static Product parseCsv(String row, Map<String, Integer> columns) {
+        List<String> fields = splitCsv(row);
+
+        if (fields.size() < columns.size())
+            throw new InvalidDataException("Expected %d fields but found %d", columns.size(), fields.size());
+
+        return Product.builder()
+                .productName(fields.get(columns.get("productName")))
+                .manufacturer(fields.get(columns.get("manufacturer")))
+                .priceMinor(parsePrice(fields.get(columns.get("price"))))
+                .build();
+    }
+
+    /**
+     * Converts a decimal price to minor units without going through a double.
+     */
+    private static long parsePrice(String price) {
+        if (price.isBlank())
+            return Product.NO_PRICE;
+
+        try {
+            return new BigDecimal(price.trim())
+                    .movePointRight(Product.PRICE_SCALE)
+                    .setScale(0, RoundingMode.HALF_EVEN)
+                    .longValueExact();
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new InvalidDataException("Invalid price [%s]", price);
+        }
+    }
+
+    private static Map<String, Integer> readHeader(BufferedReader reader) throws IOException {
+        String header = readRecord(reader, ProductImportFormat.CSV);
+
+        if (header == null)
+            throw new InvalidDataException("Missing CSV header");
+
+        List<String> names = splitCsv(header.replace("\uFEFF", ""));
+        Map<String, Integer> columns = new HashMap<>();
+
+        for (int i = 0; i < names.size(); i++)
+            columns.put(names.get(i).trim(), i);
+
+        for (String column : CSV_COLUMNS)
+            if (!columns.containsKey(column))
+                throw new InvalidDataException("Missing CSV column [%s]", column);
+
+        return columns;
+    }
+
+    private static String readRecord(BufferedReader reader, ProductImportFormat format) throws IOException {
+        String line = reader.readLine();
+
+        if (line == null || format != ProductImportFormat.CSV)
+            return line;
+
+        StringBuilder record = new StringBuilder(line);
+        boolean quoted = isOpenQuoted(line, false);
+
+        while (quoted && (line = reader.readLine()) != null) {
+            record.append('\n').append(line);
+            quoted = isOpenQuoted(line, true);
+        }
+
+        return record.toString();
+    }
+
+    /**
+     * Whether a quoted field is still open at the end of the line.
+     */
+    private static boolean isOpenQuoted(String line, boolean quoted) {
+        for (int i = 0; i < line.length(); i++)
+            if (line.charAt(i) == '"')
+                quoted = !quoted;
+
+        return quoted;
+    }
+
+    private static List<String> splitCsv(String record) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < record.length(); i++) {
+            char c = record.charAt(i);
+
+            if (quoted && c == '"' && i + 1 < record.length() && record.charAt(i + 1) == '"') {
+                field.append('"');
+                i++;
+            } else if (c == '"') {
+                quoted = !quoted;
+            } else if (c == ',' && !quoted) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * Waits for room in the next stage's queue, giving up once another stage has failed.
+     */
+    private static <T> void put(BlockingQueue<T> queue, T chunk, Job job) throws InterruptedException {
+        while (!queue.offer(chunk, QUEUE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS))
+            if (job.failure.get() != null)
+                throw new CancellationException();
+    }
+
+    private static <T> T take(BlockingQueue<T> queue, Job job) throws InterruptedException {
+        T chunk;
+
+        while ((chunk = queue.poll(QUEUE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) == null)
+            if (job.failure.get() != null)
+                throw new CancellationException();
+
+        return chunk;
+    }
+
+    /**
+     * Runs a stage, failing the whole import when it fails.
+     */
+    private static Runnable stage(Job job, Stage stage) {
+        return () -> {
+            try {
+                stage.run();
+            } catch (CancellationException e) {
+                // another stage failed first
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                job.fail(e);
+            } catch (Exception e) {
+                job.fail(e);
+            }
+        };
+    }
+
+    private interface Stage {
+        void run() throws Exception;
+    }
+
+    private static final class Record {
+        private final long number;
+        private final String row;
+
+        Record(long number, String row) {
+            this.number = number;
+            this.row = row;
+        }
+    }
+
+    private static final class Parsed {
+        private final Record record;
+        private final Product product;
+
+        Parsed(Record record, Product product) {
+            this.record = record;
+            this.product = product;
+        }
+    }
+
+    private static final class Job {
+        private final String id;
+        private final ProductImportFormat format;
+        private final Path file;
+        private final boolean deleteFile;
+        private final Instant startedAt = Instant.now();
+        private final long startNanos = System.nanoTime();
+        private final AtomicLong read = new AtomicLong();
+        private final AtomicLong imported = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        private volatile Map<String, Integer> columns;
+        private volatile ProductImportStatus status = ProductImportStatus.RUNNING;
+        private volatile Path deadLetterFile;
+        private volatile Instant finishedAt;
+        private volatile long elapsedNanos = -1;
+
+        Job(String id, ProductImportFormat format, Path file, boolean deleteFile) {
+            this.id = id;
+            this.format = format;
+            this.file = file;
+            this.deleteFile = deleteFile;
+        }
+
+        void fail(Throwable e) {
+            failure.compareAndSet(null, e);
+        }
+
+        ProductImport snapshot() {
+            long elapsed = elapsedNanos < 0 ? System.nanoTime() - startNanos : elapsedNanos;
+            Throwable error = failure.get();
+
+            return ProductImport.builder()
+                    .id(id)
+                    .format(format.name().toLowerCase())
+                    .status(status)
+                    .rowsRead(read.get())
+                    .rowsImported(imported.get())
+                    .rowsRejected(rejected.get())
+                    .rowsPerSecond(elapsed == 0 ? 0 : imported.get() * 1e9 / elapsed)
+                    .startedAt(startedAt)
+                    .finishedAt(finishedAt)
+                    .deadLetterFile(deadLetterFile == null ? null : deadLetterFile.toString())
+                    .message(error == null ? null : error.getMessage())
+                    .build();
+        }
+    }
+
+    /**
+     * The rejected rows of one import as newline delimited JSON, created with the first rejected row.
+     */
+    private final class DeadLetters implements Closeable {
+        private final Job job;
+        private BufferedWriter writer;
+
+        DeadLetters(Job job) {
+            this.job = job;
+        }
+
+        synchronized void reject(Record record, String error) throws IOException {
+            if (writer == null) {
+                Path file = directory.resolve(job.id + DEAD_LETTER_SUFFIX);
+                writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+                job.deadLetterFile = file;
+            }
+
+            writer.write(objectMapper.writeValueAsString(objectMapper.createObjectNode()
+                    .put("record", record.number)
+                    .put("error", error)
+                    .put("row", record.row)));
+            writer.write('\n');
+
+            job.rejected.incrementAndGet();
+            rejectedRows.increment();
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            if (writer != null)
+                writer.close();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.springbootcrudapp.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Counters are looked up once per operation, so counting a failure allocates nothing.
+ */
+@Component
+public class ProductMetrics {
+    public static final String OPTIMISTIC_LOCK_FAILURES = "product.optimistic.lock.failures";
+    public static final String NOT_FOUND = "product.not.found";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Counter> optimisticLockFailures = new ConcurrentHashMap<>();
+    private final Map<String, Counter> notFound = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ProductMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void optimisticLockFailure(String operation) {
+        optimisticLockFailures.computeIfAbsent(operation,
+                key -> meterRegistry.counter(OPTIMISTIC_LOCK_FAILURES, "operation", key)).increment();
+    }
+
+    public void notFound(String operation) {
+        notFound.computeIfAbsent(operation, key -> meterRegistry.counter(NOT_FOUND, "operation", key)).increment();
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.springbootcrudapp.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.jdbi.v3.core.extension.ExtensionMethod;
+import org.jdbi.v3.core.statement.SqlLogger;
+import org.jdbi.v3.core.statement.StatementContext;
+
+import java.lang.reflect.Method;
+import java.sql.SQLException;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every statement Jdbi executes, tagged with the SqlObject method that issued it (for example
+ * {@code ProductDao.updateProduct}) so the tag set stays bounded, and with the datasource it ran on, the
+ * {@code primary} or a replica's pool name. Statements built directly on a handle are tagged {@code adhoc}. Timers are looked up once per method and outcome, so timing a statement allocates
+ * nothing.
+ */
+public class TimedSqlLogger implements SqlLogger {
+    public static final String SQL_TIMER = "product.sql";
+    public static final String PRIMARY = "primary";
+
+    private final String datasource;
+    private final MeterRegistry meterRegistry;
+    private final OutcomeTimers success = new OutcomeTimers("success");
+    private final OutcomeTimers error = new OutcomeTimers("error");
+
+    public TimedSqlLogger(String datasource, MeterRegistry meterRegistry) {
+        this.datasource = datasource;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void logAfterExecution(StatementContext context) {
+        record(context, success);
+    }
+
+    @Override
+    public void logException(StatementContext context, SQLException ex) {
+        record(context, error);
+    }
+
+    private void record(StatementContext context, OutcomeTimers timers) {
+        timers.get(context.getExtensionMethod()).record(context.getElapsedTime(ChronoUnit.NANOS), TimeUnit.NANOSECONDS);
+    }
+
+    private static String statementName(ExtensionMethod extensionMethod) {
+        if (extensionMethod == null)
+            return "adhoc";
+
+        return extensionMethod.getType().getSimpleName() + "." + extensionMethod.getMethod().getName();
+    }
+
+    /**
+     * The timers of one outcome, by SqlObject type and method; {@link ExtensionMethod} has no equality of its
+     * own, and a method inherited by two types is tagged with each type's name.
+     */
+    private final class OutcomeTimers {
+        private final String outcome;
+        private final Map<Class<?>, Map<Method, Timer>> byType = new ConcurrentHashMap<>();
+        private volatile Timer adhoc;
+
+        OutcomeTimers(String outcome) {
+            this.outcome = outcome;
+        }
+
+        Timer get(ExtensionMethod extensionMethod) {
+            if (extensionMethod == null) {
+                Timer timer = adhoc;
+
+                if (timer == null)
+                    adhoc = timer = register(null);
+
+                return timer;
+            }
+
+            Map<Method, Timer> byMethod = byType.get(extensionMethod.getType());
+            if (byMethod == null)
+                byMethod = byType.computeIfAbsent(extensionMethod.getType(), type -> new ConcurrentHashMap<>());
+
+            Timer timer = byMethod.get(extensionMethod.getMethod());
+            if (timer == null)
+                timer = byMethod.computeIfAbsent(extensionMethod.getMethod(), method -> register(extensionMethod));
+
+            return timer;
+        }
+
+        private Timer register(ExtensionMethod extensionMethod) {
+            return Timer.builder(SQL_TIMER)
+                    .tag("datasource", datasource)
+                    .tag("statement", statementName(extensionMethod))
+                    .tag("outcome", outcome)
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -1,18 +1,69 @@
 package com.example.springbootcrudapp.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.UUID;
+
+/**
+ * Products keep their id as a {@link UUID}, their version as a primitive and their price as whole minor
+ * units (cents), roughly halving the heap of a cached product. On the wire the id is still the UUID string
+ * and the price a decimal number, through {@link #getPrice()} and {@link #setPrice(Double)}.
+ */
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class Product {
-    private String id;
-    private Long version;
+    /**
+     * The version of a product whose client sent none; stored versions start at 1.
+     */
+    public static final long NO_VERSION = 0;
+    /**
+     * The minor units of a product whose client sent no price.
+     */
+    public static final long NO_PRICE = Long.MIN_VALUE;
+    public static final int PRICE_SCALE = 2;
+
+    private UUID id;
+    private long version;
     private String productName;
     private String manufacturer;
-    private Double price;
+    @JsonIgnore
+    @Builder.Default
+    private long priceMinor = NO_PRICE;
+
+    public Double getPrice() {
+        return priceMinor == NO_PRICE ? null : toPrice(priceMinor);
+    }
+
+    public void setPrice(Double price) {
+        priceMinor = price == null ? NO_PRICE : toMinorUnits(price, RoundingMode.HALF_EVEN);
+    }
+
+    /**
+     * Converts a decimal price to minor units, rounding any fraction of a minor unit with the given mode.
+     * Throws {@link ArithmeticException} for a price that is not finite or whose minor units overflow a long.
+     */
+    public static long toMinorUnits(double price, RoundingMode roundingMode) {
+        if (!Double.isFinite(price))
+            throw new ArithmeticException("Price is not finite: " + price);
+
+        return BigDecimal.valueOf(price).movePointRight(PRICE_SCALE).setScale(0, roundingMode).longValueExact();
+    }
+
+    public static double toPrice(long priceMinor) {
+        return priceMinor / 100.0;
+    }
+
+    public static class ProductBuilder {
+        public ProductBuilder price(Double price) {
+            return priceMinor(price == null ? NO_PRICE : toMinorUnits(price, RoundingMode.HALF_EVEN));
+        }
+    }
 }
@@ -0,0 +1,22 @@
+package com.example.springbootcrudapp.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ProductBatchResult {
+    private int index;
+    private UUID id;
+    private Long version;
+    private ProductBatchStatus status;
+    private String message;
+}
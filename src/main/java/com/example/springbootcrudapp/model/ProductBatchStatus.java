@@ -0,0 +1,10 @@
+package com.example.springbootcrudapp.model;
+
+public enum ProductBatchStatus {
+    CREATED,
+    UPDATED,
+    DELETED,
+    INVALID,
+    NOT_FOUND,
+    CONFLICT
+}
@@ -0,0 +1,31 @@
+package com.example.springbootcrudapp.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * One committed create, update or delete. Sequence numbers only ever grow, but may have gaps.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ProductChange {
+    private long sequence;
+    private ProductChangeType type;
+    private UUID id;
+    private Long version;
+    private Instant changedAt;
+
+    /**
+     * The product as stored by the change, absent for deletes.
+     */
+    private Product product;
+}
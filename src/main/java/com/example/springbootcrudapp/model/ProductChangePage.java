@@ -0,0 +1,17 @@
+package com.example.springbootcrudapp.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Changes after a sequence number, and the sequence number to continue from, which moves past gaps even when
+ * there are no changes.
+ */
+@Data
+@AllArgsConstructor
+public class ProductChangePage {
+    private List<ProductChange> changes;
+    private long next;
+}
@@ -0,0 +1,7 @@
+package com.example.springbootcrudapp.model;
+
+public enum ProductChangeType {
+    CREATED,
+    UPDATED,
+    DELETED
+}
@@ -0,0 +1,40 @@
+package com.example.springbootcrudapp.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * The progress of an import, a snapshot while it is running.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ProductImport {
+    private String id;
+    private String format;
+    private ProductImportStatus status;
+    private long rowsRead;
+    private long rowsImported;
+    private long rowsRejected;
+    private double rowsPerSecond;
+    private Instant startedAt;
+    private Instant finishedAt;
+
+    /**
+     * The file that rejected rows were written to, one JSON object per row with its error; absent while no
+     * row was rejected.
+     */
+    private String deadLetterFile;
+
+    /**
+     * Why the import failed.
+     */
+    private String message;
+}
@@ -0,0 +1,7 @@
+package com.example.springbootcrudapp.model;
+
+public enum ProductImportStatus {
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
@@ -0,0 +1,43 @@
+package com.example.springbootcrudapp.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.RoundingMode;
+
+/**
+ * Filters of a product search; null filters are not applied. Results are ordered by the sort field, then by
+ * id, so pages are stable.
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSearch {
+    private String manufacturer;
+    private String namePrefix;
+    private Double minPrice;
+    private Double maxPrice;
+    @Builder.Default
+    private ProductSortField sortField = ProductSortField.ID;
+    private boolean descending;
+    private int limit;
+    private long offset;
+
+    /**
+     * The lower price bound in minor units, rounded up so that no cheaper product matches. Like
+     * {@link Product#toMinorUnits}, throws for bounds that are not finite or out of range.
+     */
+    public Long getMinPriceMinor() {
+        return minPrice == null ? null : Product.toMinorUnits(minPrice, RoundingMode.CEILING);
+    }
+
+    /**
+     * The upper price bound in minor units, rounded down so that no dearer product matches.
+     */
+    public Long getMaxPriceMinor() {
+        return maxPrice == null ? null : Product.toMinorUnits(maxPrice, RoundingMode.FLOOR);
+    }
+}
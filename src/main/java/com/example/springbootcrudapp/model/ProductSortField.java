@@ -0,0 +1,25 @@
+package com.example.springbootcrudapp.model;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+public enum ProductSortField {
+    ID("id"),
+    PRODUCT_NAME("productName"),
+    MANUFACTURER("manufacturer"),
+    PRICE("price");
+
+    private final String property;
+
+    ProductSortField(String property) {
+        this.property = property;
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    public static Optional<ProductSortField> fromProperty(String property) {
+        return Arrays.stream(values()).filter(field -> field.property.equals(property)).findFirst();
+    }
+}
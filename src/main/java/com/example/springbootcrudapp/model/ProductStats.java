@@ -0,0 +1,47 @@
+package com.example.springbootcrudapp.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Count and price statistics of all products, or of one manufacturer's. Prices are summed in minor units, so
+ * two statistics of the same products are always equal.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ProductStats {
+    /**
+     * The manufacturer, absent for statistics of all products.
+     */
+    private String manufacturer;
+    private long count;
+    @JsonIgnore
+    private long totalPriceMinor;
+    @JsonIgnore
+    private long minPriceMinor;
+    @JsonIgnore
+    private long maxPriceMinor;
+
+    public Double getTotalPrice() {
+        return Product.toPrice(totalPriceMinor);
+    }
+
+    public Double getMinPrice() {
+        return count == 0 ? null : Product.toPrice(minPriceMinor);
+    }
+
+    public Double getMaxPrice() {
+        return count == 0 ? null : Product.toPrice(maxPriceMinor);
+    }
+
+    public Double getAveragePrice() {
+        return count == 0 ? null : Product.toPrice(totalPriceMinor) / count;
+    }
+}
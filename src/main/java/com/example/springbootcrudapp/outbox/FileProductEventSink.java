@@ -0,0 +1,52 @@
+package com.example.springbootcrudapp.outbox;
+
+import com.example.springbootcrudapp.model.ProductChange;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends changes to a file as newline delimited JSON, one write and one force per batch.
+ */
+public class FileProductEventSink implements ProductEventSink, Closeable {
+    private final ObjectMapper objectMapper;
+    private final FileChannel channel;
+
+    public FileProductEventSink(Path file, ObjectMapper objectMapper) throws IOException {
+        this.objectMapper = objectMapper;
+
+        if (file.getParent() != null)
+            Files.createDirectories(file.getParent());
+
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    @Override
+    public synchronized void publish(List<ProductChange> changes) throws IOException {
+        ByteArrayOutputStream lines = new ByteArrayOutputStream(changes.size() * 192);
+
+        for (ProductChange change : changes) {
+            objectMapper.writeValue(lines, change);
+            lines.write('\n');
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(lines.toByteArray());
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+
+        channel.force(false);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.springbootcrudapp.outbox;
+
+import com.example.springbootcrudapp.model.ProductChange;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps published changes in memory, standing in for a message broker.
+ */
+public class InMemoryProductEventSink implements ProductEventSink {
+    private final List<ProductChange> events = new ArrayList<>();
+
+    @Override
+    public synchronized void publish(List<ProductChange> changes) {
+        events.addAll(changes);
+    }
+
+    public synchronized List<ProductChange> getEvents() {
+        return List.copyOf(events);
+    }
+}
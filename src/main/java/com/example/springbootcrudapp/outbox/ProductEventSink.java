@@ -0,0 +1,14 @@
+package com.example.springbootcrudapp.outbox;
+
+import com.example.springbootcrudapp.model.ProductChange;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Where the outbox relay publishes product changes. Batches arrive in sequence order, and a batch may be
+ * published again after a crash or a failed call, so consumers have to skip sequence numbers they have seen.
+ */
+public interface ProductEventSink {
+    void publish(List<ProductChange> changes) throws IOException;
+}
@@ -0,0 +1,126 @@
+package com.example.springbootcrudapp.outbox;
+
+import com.example.springbootcrudapp.model.ProductChangePage;
+import com.example.springbootcrudapp.repository.ProductRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the change log, which every write fills in its own transaction, to a sink in batches on a
+ * background thread, so requests never wait for the sink. How far it got is stored after every batch; a batch
+ * that was published but not yet recorded is published again after a crash, so delivery is at least once.
+ */
+@Slf4j
+public class ProductOutboxRelay implements Closeable {
+    private final String name;
+    private final ProductRepository productRepository;
+    private final ProductEventSink sink;
+    private final int batchSize;
+    private final Duration interval;
+    private final ScheduledExecutorService scheduler;
+
+    private volatile long relayedThrough = -1;
+
+    private final Counter published;
+    private final Counter failures;
+    private final Timer batchTimer;
+
+    public ProductOutboxRelay(String name, ProductRepository productRepository, ProductEventSink sink, int batchSize,
+                              Duration interval, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.productRepository = productRepository;
+        this.sink = sink;
+        this.batchSize = batchSize;
+        this.interval = interval;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "product-outbox-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.published = meterRegistry.counter("product.outbox.published", "relay", name);
+        this.failures = meterRegistry.counter("product.outbox.failures", "relay", name);
+        this.batchTimer = Timer.builder("product.outbox.batch").tag("relay", name).register(meterRegistry);
+
+        Gauge.builder("product.outbox.lag", this, ProductOutboxRelay::lag)
+                .tag("relay", name)
+                .description("Published changes not yet relayed")
+                .register(meterRegistry);
+    }
+
+    public void start() {
+        relayedThrough = productRepository.getRelayedThrough(name);
+
+        long intervalNanos = interval.toNanos();
+        scheduler.scheduleWithFixedDelay(this::relay, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * The sequence number published through; the change log keeps everything after it.
+     */
+    public long relayedThrough() {
+        return relayedThrough < 0 ? 0 : relayedThrough;
+    }
+
+    /**
+     * Publishes full batches until the relay has caught up with the change log.
+     */
+    public void relay() {
+        try {
+            ProductChangePage page;
+
+            do {
+                page = productRepository.getChanges(relayedThrough(), batchSize);
+
+                if (!page.getChanges().isEmpty()) {
+                    ProductChangePage batch = page;
+                    batchTimer.recordCallable(() -> {
+                        sink.publish(batch.getChanges());
+                        return null;
+                    });
+                    published.increment(page.getChanges().size());
+                }
+
+                if (page.getNext() > relayedThrough()) {
+                    productRepository.saveRelayedThrough(name, page.getNext());
+                    relayedThrough = page.getNext();
+                }
+            } while (page.getChanges().size() == batchSize);
+        } catch (Exception e) {
+            failures.increment();
+            log.warn("Could not relay product changes through [{}], retrying in {}", name, interval, e);
+        }
+    }
+
+    /**
+     * Stops the relay after a last batch.
+     */
+    @Override
+    public void close() throws IOException {
+        scheduler.shutdown();
+
+        try {
+            if (scheduler.awaitTermination(interval.toMillis() + 10_000, TimeUnit.MILLISECONDS))
+                relay();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (sink instanceof Closeable)
+            ((Closeable) sink).close();
+    }
+
+    private double lag() {
+        return Math.max(0, productRepository.getPublishedChangeSequence() - relayedThrough());
+    }
+}
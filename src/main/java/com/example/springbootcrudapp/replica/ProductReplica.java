@@ -0,0 +1,76 @@
+package com.example.springbootcrudapp.replica;
+
+import com.example.springbootcrudapp.dao.ProductDao;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.io.Closeable;
+
+/**
+ * One read replica: its own connection pool and {@link ProductDao}, and whether reads are currently routed
+ * to it. Counts {@code product.replica.reads{replica, result}}, where {@code served} reads were answered by
+ * the replica, {@code stale} ones lacked a recent write and {@code failed} ones threw.
+ */
+public class ProductReplica implements Closeable {
+    private final String name;
+    private final HikariDataSource dataSource;
+    private final ProductDao productDao;
+    private volatile boolean healthy = true;
+
+    private final Counter served;
+    private final Counter stale;
+    private final Counter failed;
+
+    public ProductReplica(String name, HikariDataSource dataSource, ProductDao productDao, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.dataSource = dataSource;
+        this.productDao = productDao;
+
+        this.served = meterRegistry.counter("product.replica.reads", "replica", name, "result", "served");
+        this.stale = meterRegistry.counter("product.replica.reads", "replica", name, "result", "stale");
+        this.failed = meterRegistry.counter("product.replica.reads", "replica", name, "result", "failed");
+
+        Gauge.builder("product.replica.healthy", this, replica -> replica.healthy ? 1 : 0)
+                .tag("replica", name)
+                .register(meterRegistry);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public HikariDataSource getDataSource() {
+        return dataSource;
+    }
+
+    public ProductDao getProductDao() {
+        return productDao;
+    }
+
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    void setHealthy(boolean healthy) {
+        this.healthy = healthy;
+    }
+
+    void served() {
+        served.increment();
+    }
+
+    void stale() {
+        stale.increment();
+    }
+
+    void failed() {
+        failed.increment();
+    }
+
+    @Override
+    public void close() {
+        dataSource.close();
+    }
+}
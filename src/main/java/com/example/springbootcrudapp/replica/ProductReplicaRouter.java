@@ -0,0 +1,386 @@
+package com.example.springbootcrudapp.replica;
+
+import com.example.springbootcrudapp.dao.ProductDao;
+import com.example.springbootcrudapp.model.Product;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Sends product reads to the healthy replicas in turn and everything else to the primary. Without replicas,
+ * or until {@link #start()}, every read goes to the primary.
+ * <p>
+ * Reads see every write made in the consistency window before them: the version of each product written is
+ * remembered for the window, and a replica answer showing an older version, or a deleted product, is dropped
+ * for the primary's. Pages, searches and scans cannot tell which written products they should have found, so
+ * they only go to a replica once it shows every write of the window, checked by looking up their versions
+ * before the read. A write whose version is not known, or more writes than can be tracked, send the affected
+ * reads to the primary for the window.
+ * <p>
+ * A replica whose read throws is taken out of rotation at once. Health checks take out replicas that still
+ * lack a write older than the maximum lag, and put replicas back once they answer and have caught up.
+ */
+@Slf4j
+public class ProductReplicaRouter implements Closeable {
+    private static final long DELETED = -1;
+    private static final int VERIFY_CHUNK_SIZE = 1000;
+    private static final int MAX_VERIFIED_WRITES = 10 * VERIFY_CHUNK_SIZE;
+    private static final UUID PROBE_ID = new UUID(0, 0);
+
+    private final ProductDao primaryDao;
+    private final List<ProductReplica> replicas;
+    private final long consistencyWindowNanos;
+    private final long maxLagNanos;
+    private final Duration healthCheckInterval;
+    private final int maxTrackedWrites;
+    private final ScheduledExecutorService scheduler;
+
+    private final Map<UUID, Write> recentWrites = new ConcurrentHashMap<>();
+    private final AtomicInteger next = new AtomicInteger();
+    private volatile long primaryOnlyUntil;
+    private volatile boolean started;
+
+    private final Counter primaryReads;
+
+    public ProductReplicaRouter(ProductDao primaryDao, List<ProductReplica> replicas, Duration consistencyWindow,
+                                Duration maxLag, Duration healthCheckInterval, int maxTrackedWrites,
+                                MeterRegistry meterRegistry) {
+        this.primaryDao = primaryDao;
+        this.replicas = List.copyOf(replicas);
+        this.consistencyWindowNanos = consistencyWindow.toNanos();
+        this.maxLagNanos = maxLag.toNanos();
+        this.healthCheckInterval = healthCheckInterval;
+        this.maxTrackedWrites = maxTrackedWrites;
+        this.primaryOnlyUntil = System.nanoTime();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "product-replicas");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.primaryReads = meterRegistry.counter("product.replica.reads", "replica", "primary", "result", "served");
+    }
+
+    /**
+     * Starts routing reads to the replicas and checking their health.
+     */
+    public void start() {
+        if (replicas.isEmpty())
+            return;
+
+        started = true;
+        log.info("Routing product reads to {} replicas", replicas.size());
+
+        long intervalMillis = healthCheckInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::checkHealth, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public List<ProductReplica> getReplicas() {
+        return replicas;
+    }
+
+    /**
+     * Records a create or update at the given version, or at an unknown one for {@link Product#NO_VERSION}.
+     */
+    public void written(UUID id, long version) {
+        track(id, version);
+    }
+
+    public void deleted(UUID id) {
+        track(id, DELETED);
+    }
+
+    public Optional<Product> getProductById(UUID id) {
+        Write write = recentWrites.get(id);
+
+        if (write != null && write.isExpired(System.nanoTime(), consistencyWindowNanos))
+            write = null;
+        if (write != null && write.version == Product.NO_VERSION)
+            return readPrimary(dao -> dao.getProductById(id));
+
+        Write expected = write;
+        return read(dao -> dao.getProductById(id),
+                product -> expected == null || expected.isVisibleIn(product.map(Product::getVersion)));
+    }
+
+    public List<Product> getProductsByIds(Collection<UUID> ids) {
+        Map<UUID, Write> expected = recentWrites();
+        expected.keySet().retainAll(ids instanceof Set ? ids : new HashSet<>(ids));
+
+        if (hasUnknownVersion(expected))
+            return readPrimary(dao -> dao.getProductsByIds(ids));
+
+        return read(dao -> dao.getProductsByIds(ids), products -> showsWrites(products, expected));
+    }
+
+    /**
+     * Runs a page or search query on a replica that shows every write of the window, or on the primary. Up to
+     * {@value #MAX_VERIFIED_WRITES} writes are checked, one lookup per {@value #VERIFY_CHUNK_SIZE}; with more,
+     * the query goes to the primary.
+     */
+    public <T> T readCatalog(Function<ProductDao, T> query) {
+        return readVerified(query, true);
+    }
+
+    /**
+     * Like {@link #readCatalog}, for scans that hand rows to the caller as they go: a scan that fails on a
+     * replica has already handed out some, so it is not repeated elsewhere and the failure is thrown.
+     */
+    public void scanCatalog(Consumer<ProductDao> scan) {
+        readVerified(dao -> {
+            scan.accept(dao);
+            return null;
+        }, false);
+    }
+
+    /**
+     * Takes replicas that fail to answer, or that lack a write older than the maximum lag, out of rotation,
+     * and puts the others back. Also forgets the writes that have left the consistency window.
+     */
+    public void checkHealth() {
+        long now = System.nanoTime();
+        Map.Entry<UUID, Write> probe = null;
+
+        for (Map.Entry<UUID, Write> write : recentWrites.entrySet()) {
+            if (write.getValue().isExpired(now, consistencyWindowNanos))
+                recentWrites.remove(write.getKey(), write.getValue());
+            else if (write.getValue().version != Product.NO_VERSION && now - write.getValue().writtenAt >= maxLagNanos
+                    && (probe == null || write.getValue().writtenAt > probe.getValue().writtenAt))
+                probe = write;
+        }
+
+        for (ProductReplica replica : replicas)
+            setHealthy(replica, isHealthy(replica, probe));
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+
+        for (ProductReplica replica : replicas)
+            replica.close();
+    }
+
+    private <T> T read(Function<ProductDao, T> query, Predicate<T> isCurrent) {
+        return read(dao -> true, query, isCurrent, true);
+    }
+
+    private <T> T readVerified(Function<ProductDao, T> query, boolean retryable) {
+        Map<UUID, Write> expected = recentWrites();
+
+        if (expected.size() > MAX_VERIFIED_WRITES || hasUnknownVersion(expected))
+            return readPrimary(query);
+
+        return read(dao -> showsWrites(dao, expected), query, result -> true, retryable);
+    }
+
+    /**
+     * Runs the query on the next healthy replica that is current both before and after it, or on the primary.
+     * A replica that throws is taken out of rotation, and the query tried on the next one if it is retryable.
+     */
+    private <T> T read(Predicate<ProductDao> isCurrentBefore, Function<ProductDao, T> query, Predicate<T> isCurrent,
+                       boolean retryable) {
+        if (!started || System.nanoTime() - primaryOnlyUntil < 0)
+            return readPrimary(query);
+
+        for (int attempt = 0; attempt < replicas.size(); attempt++) {
+            ProductReplica replica = nextHealthyReplica();
+
+            if (replica == null)
+                break;
+
+            boolean queried = false;
+
+            try {
+                if (!isCurrentBefore.test(replica.getProductDao())) {
+                    replica.stale();
+                    break;
+                }
+
+                queried = true;
+                T result = query.apply(replica.getProductDao());
+
+                if (!isCurrent.test(result)) {
+                    replica.stale();
+                    break;
+                }
+
+                replica.served();
+                return result;
+            } catch (RuntimeException e) {
+                replica.failed();
+                log.warn("Read from replica {} failed, taking it out of rotation", replica.getName(), e);
+                setHealthy(replica, false);
+
+                if (queried && !retryable)
+                    throw e;
+            }
+        }
+
+        return readPrimary(query);
+    }
+
+    private <T> T readPrimary(Function<ProductDao, T> query) {
+        primaryReads.increment();
+        return query.apply(primaryDao);
+    }
+
+    private ProductReplica nextHealthyReplica() {
+        for (int i = 0; i < replicas.size(); i++) {
+            ProductReplica replica = replicas.get(Math.floorMod(next.getAndIncrement(), replicas.size()));
+
+            if (replica.isHealthy())
+                return replica;
+        }
+
+        return null;
+    }
+
+    private void track(UUID id, long version) {
+        if (replicas.isEmpty())
+            return;
+
+        recentWrites.put(id, new Write(version, System.nanoTime()));
+
+        if (recentWrites.size() > maxTrackedWrites) {
+            primaryOnlyUntil = System.nanoTime() + consistencyWindowNanos;
+            recentWrites.clear();
+            log.info("More than {} products written within {} ms, reading from the primary meanwhile",
+                    maxTrackedWrites, TimeUnit.NANOSECONDS.toMillis(consistencyWindowNanos));
+        }
+    }
+
+    private Map<UUID, Write> recentWrites() {
+        long now = System.nanoTime();
+        Map<UUID, Write> writes = new HashMap<>();
+
+        for (Map.Entry<UUID, Write> write : recentWrites.entrySet())
+            if (!write.getValue().isExpired(now, consistencyWindowNanos))
+                writes.put(write.getKey(), write.getValue());
+
+        return writes;
+    }
+
+    private static boolean hasUnknownVersion(Map<UUID, Write> writes) {
+        for (Write write : writes.values())
+            if (write.version == Product.NO_VERSION)
+                return true;
+
+        return false;
+    }
+
+    private static boolean showsWrites(List<Product> products, Map<UUID, Write> expected) {
+        if (expected.isEmpty())
+            return true;
+
+        int present = 0;
+
+        for (Product product : products) {
+            Write write = expected.get(product.getId());
+
+            if (write == null)
+                continue;
+            if (!write.isVisibleIn(Optional.of(product.getVersion())))
+                return false;
+
+            present++;
+        }
+
+        long created = expected.values().stream().filter(write -> write.version != DELETED).count();
+        return present == created;
+    }
+
+    private static boolean showsWrites(ProductDao dao, Map<UUID, Write> expected) {
+        List<UUID> ids = new ArrayList<>(expected.keySet());
+
+        for (int from = 0; from < ids.size(); from += VERIFY_CHUNK_SIZE) {
+            List<UUID> chunk = ids.subList(from, Math.min(from + VERIFY_CHUNK_SIZE, ids.size()));
+            Map<UUID, Long> versions = dao.getProductVersions(chunk);
+
+            for (UUID id : chunk)
+                if (!expected.get(id).isVisibleIn(Optional.ofNullable(versions.get(id))))
+                    return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * A replica is current for the probe when it shows the write, or matches the primary, which it does when
+     * the write was rolled back.
+     */
+    private boolean isHealthy(ProductReplica replica, Map.Entry<UUID, Write> probe) {
+        try {
+            if (probe == null) {
+                replica.getProductDao().getProductVersion(PROBE_ID);
+                return true;
+            }
+
+            Optional<Long> version = replica.getProductDao().getProductVersion(probe.getKey());
+
+            if (probe.getValue().isVisibleIn(version))
+                return true;
+
+            return version.equals(primaryDao.getProductVersion(probe.getKey()));
+        } catch (RuntimeException e) {
+            log.debug("Health check of replica {} failed", replica.getName(), e);
+            return false;
+        }
+    }
+
+    private void setHealthy(ProductReplica replica, boolean healthy) {
+        if (replica.isHealthy() == healthy)
+            return;
+
+        replica.setHealthy(healthy);
+
+        if (healthy)
+            log.info("Replica {} is healthy again, routing reads to it", replica.getName());
+        else
+            log.warn("Replica {} failed or lags behind, routing its reads elsewhere", replica.getName());
+    }
+
+    private static final class Write {
+        private final long version;
+        private final long writtenAt;
+
+        Write(long version, long writtenAt) {
+            this.version = version;
+            this.writtenAt = writtenAt;
+        }
+
+        boolean isExpired(long now, long windowNanos) {
+            return now - writtenAt > windowNanos;
+        }
+
+        /**
+         * Whether a copy at the given version, or without the product, shows this write.
+         */
+        boolean isVisibleIn(Optional<Long> storedVersion) {
+            if (version == DELETED)
+                return storedVersion.isEmpty();
+
+            return storedVersion.filter(stored -> stored >= version).isPresent();
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.springbootcrudapp.replica;
+
+import com.example.springbootcrudapp.dao.ProductDao;
+import com.example.springbootcrudapp.model.Product;
+import com.example.springbootcrudapp.model.ProductChange;
+import com.example.springbootcrudapp.model.ProductChangeType;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Replication for replicas that have none of their own, such as local H2 databases: creates their schema,
+ * copies the products table to them and then applies the primary's change log every interval, so they lag
+ * behind the primary the way real replicas do. Each replica keeps its own position, so one that fails to
+ * apply changes catches up once it can.
+ */
+@Slf4j
+public class ProductReplicaStandIn implements Closeable {
+    private static final int BATCH_SIZE = 1000;
+
+    private final ProductDao primaryDao;
+    private final LongSupplier publishedChanges;
+    private final List<ProductReplica> replicas;
+    private final Consumer<ProductReplica> schemaMigration;
+    private final Duration interval;
+    private final ScheduledExecutorService scheduler;
+    private final Map<String, Long> positions = new ConcurrentHashMap<>();
+
+    public ProductReplicaStandIn(ProductDao primaryDao, LongSupplier publishedChanges, List<ProductReplica> replicas,
+                                 Consumer<ProductReplica> schemaMigration, Duration interval) {
+        this.primaryDao = primaryDao;
+        this.publishedChanges = publishedChanges;
+        this.replicas = replicas;
+        this.schemaMigration = schemaMigration;
+        this.interval = interval;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "product-replica-stand-in");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Migrates and fills the replicas, then starts applying changes to them.
+     */
+    public void start() {
+        for (ProductReplica replica : replicas) {
+            schemaMigration.accept(replica);
+            copyProducts(replica);
+        }
+
+        long intervalMillis = interval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::replicate, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Applies the changes published since the last call to every replica, and returns how many were applied.
+     */
+    public synchronized int replicate() {
+        long through = publishedChanges.getAsLong();
+        int applied = 0;
+
+        for (ProductReplica replica : replicas) {
+            try {
+                applied += applyChanges(replica, through);
+            } catch (RuntimeException e) {
+                log.warn("Could not replicate product changes to replica {}", replica.getName(), e);
+            }
+        }
+
+        return applied;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Copies every product, starting the replica's position before the copy so that changes made meanwhile
+     * are applied again afterwards.
+     */
+    private void copyProducts(ProductReplica replica) {
+        long position = publishedChanges.getAsLong();
+        List<Product> batch = new ArrayList<>(BATCH_SIZE);
+
+        primaryDao.forEachProduct(null, product -> {
+            batch.add(product);
+
+            if (batch.size() == BATCH_SIZE) {
+                replica.getProductDao().replicateProducts(batch);
+                batch.clear();
+            }
+        });
+
+        if (!batch.isEmpty())
+            replica.getProductDao().replicateProducts(batch);
+
+        positions.put(replica.getName(), position);
+    }
+
+    private int applyChanges(ProductReplica replica, long through) {
+        long position = positions.getOrDefault(replica.getName(), through);
+        int applied = 0;
+
+        while (position < through) {
+            List<ProductChange> changes = primaryDao.getChanges(position, through, BATCH_SIZE);
+
+            if (changes.isEmpty())
+                break;
+
+            apply(replica.getProductDao(), changes);
+            position = changes.get(changes.size() - 1).getSequence();
+            positions.put(replica.getName(), position);
+            applied += changes.size();
+        }
+
+        return applied;
+    }
+
+    /**
+     * Applies the changes in order, batching each run of writes and of deletes.
+     */
+    private static void apply(ProductDao replicaDao, List<ProductChange> changes) {
+        replicaDao.useTransaction(dao -> {
+            List<Product> writes = new ArrayList<>();
+            List<UUID> deletions = new ArrayList<>();
+
+            for (ProductChange change : changes) {
+                if (change.getType() == ProductChangeType.DELETED) {
+                    flush(dao, writes, List.of());
+                    deletions.add(change.getId());
+                } else {
+                    flush(dao, List.of(), deletions);
+                    writes.add(change.getProduct());
+                }
+            }
+
+            flush(dao, writes, deletions);
+        });
+    }
+
+    private static void flush(ProductDao dao, List<Product> writes, List<UUID> deletions) {
+        if (!writes.isEmpty()) {
+            dao.replicateProducts(writes);
+            writes.clear();
+        }
+
+        if (!deletions.isEmpty()) {
+            dao.replicateDeletions(deletions);
+            deletions.clear();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.springbootcrudapp.repository;
+
+import com.example.springbootcrudapp.dao.ProductDao;
+import com.example.springbootcrudapp.metrics.ProductMetrics;
+import com.example.springbootcrudapp.model.Product;
+import com.example.springbootcrudapp.model.ProductBatchStatus;
+import com.example.springbootcrudapp.model.ProductChangeType;
+import com.example.springbootcrudapp.replica.ProductReplicaRouter;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Writes chunks of products through a single transaction opened by {@link ProductRepository#inBatch}.
+ * Rows that are not updated or deleted are told apart as missing or as optimistic lock conflicts with
+ * one extra lookup per chunk, and only when a chunk actually has failures. Every row written is logged to the
+ * {@link ProductChangeLog} in the same transaction, and reported to the {@link ProductReplicaRouter} right away,
+ * so that reads fall back to the primary should a replica show the row before the batch commits.
+ */
+public class ProductBatchWriter {
+    private final ProductDao productDao;
+    private final ProductMetrics productMetrics;
+    private final ProductChangeLog changeLog;
+    private final List<Long> changeReservations;
+    private final ProductReplicaRouter replicaRouter;
+    private final Set<UUID> touchedIds = new HashSet<>();
+    private final int maxTrackedIds;
+    private boolean tooManyTouchedIds;
+
+    ProductBatchWriter(ProductDao productDao, ProductMetrics productMetrics, int maxTrackedIds,
+                       ProductChangeLog changeLog, List<Long> changeReservations, ProductReplicaRouter replicaRouter) {
+        this.productDao = productDao;
+        this.productMetrics = productMetrics;
+        this.maxTrackedIds = maxTrackedIds;
+        this.changeLog = changeLog;
+        this.changeReservations = changeReservations;
+        this.replicaRouter = replicaRouter;
+    }
+
+    public void createProducts(List<Product> products) {
+        productDao.createProducts(products);
+        changeLog.append(productDao, ProductChangeType.CREATED, products, changeReservations);
+
+        for (Product product : products)
+            replicaRouter.written(product.getId(), product.getVersion());
+    }
+
+    public List<ProductBatchStatus> updateProducts(List<Product> products) {
+        trackTouchedIds(products);
+        List<ProductBatchStatus> statuses = toStatuses(products, productDao.updateProducts(products),
+                ProductBatchStatus.UPDATED, "batch-update");
+
+        for (int i = 0; i < statuses.size(); i++)
+            if (statuses.get(i) == ProductBatchStatus.UPDATED)
+                replicaRouter.written(products.get(i).getId(), products.get(i).getVersion() + 1);
+
+        return logChanges(products, statuses, ProductBatchStatus.UPDATED, ProductChangeType.UPDATED);
+    }
+
+    public List<ProductBatchStatus> updateProductsIgnoringVersion(List<Product> products) {
+        trackTouchedIds(products);
+        List<ProductBatchStatus> statuses = toStatuses(products, productDao.updateProductsIgnoringVersion(products),
+                ProductBatchStatus.UPDATED, "batch-update");
+
+        for (int i = 0; i < statuses.size(); i++)
+            if (statuses.get(i) == ProductBatchStatus.UPDATED)
+                replicaRouter.written(products.get(i).getId(), Product.NO_VERSION);
+
+        return logChanges(products, statuses, ProductBatchStatus.UPDATED, ProductChangeType.UPDATED);
+    }
+
+    public List<ProductBatchStatus> deleteProducts(List<Product> products) {
+        trackTouchedIds(products);
+        List<ProductBatchStatus> statuses = toStatuses(products, productDao.deleteProducts(products),
+                ProductBatchStatus.DELETED, "batch-delete");
+
+        for (int i = 0; i < statuses.size(); i++)
+            if (statuses.get(i) == ProductBatchStatus.DELETED)
+                replicaRouter.deleted(products.get(i).getId());
+
+        return logChanges(products, statuses, ProductBatchStatus.DELETED, ProductChangeType.DELETED);
+    }
+
+    Set<UUID> getTouchedIds() {
+        return touchedIds;
+    }
+
+    boolean hasTooManyTouchedIds() {
+        return tooManyTouchedIds;
+    }
+
+    private List<ProductBatchStatus> toStatuses(List<Product> products, int[] counts, ProductBatchStatus success,
+                                                String operation) {
+        List<UUID> failedIds = new ArrayList<>();
+
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0)
+                failedIds.add(products.get(i).getId());
+        }
+
+        Set<UUID> existingIds = failedIds.isEmpty() ? Set.of() : new HashSet<>(productDao.getExistingIds(failedIds));
+
+        List<ProductBatchStatus> statuses = new ArrayList<>(counts.length);
+
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0)
+                statuses.add(success);
+            else if (existingIds.contains(products.get(i).getId())) {
+                productMetrics.optimisticLockFailure(operation);
+                statuses.add(ProductBatchStatus.CONFLICT);
+            } else {
+                productMetrics.notFound(operation);
+                statuses.add(ProductBatchStatus.NOT_FOUND);
+            }
+        }
+
+        return statuses;
+    }
+
+    private List<ProductBatchStatus> logChanges(List<Product> products, List<ProductBatchStatus> statuses,
+                                                ProductBatchStatus success, ProductChangeType type) {
+        List<Product> changed = new ArrayList<>(products.size());
+
+        for (int i = 0; i < statuses.size(); i++) {
+            if (statuses.get(i) == success)
+                changed.add(products.get(i));
+        }
+
+        changeLog.append(productDao, type, changed, changeReservations);
+        return statuses;
+    }
+
+    private void trackTouchedIds(List<Product> products) {
+        if (tooManyTouchedIds)
+            return;
+
+        for (Product product : products)
+            touchedIds.add(product.getId());
+
+        if (touchedIds.size() > maxTrackedIds) {
+            tooManyTouchedIds = true;
+            touchedIds.clear();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.springbootcrudapp.repository;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts committed writes to the products table so the whole catalog can be tagged without scanning it.
+ * The epoch changes on every start, so revisions from a previous run never match. Readers must take the
+ * revision before reading rows: a write racing the read then only costs one extra full response.
+ */
+@Component
+public class ProductCatalogRevision {
+    private final long epoch = System.currentTimeMillis();
+    private final AtomicLong revision = new AtomicLong();
+
+    public String current() {
+        return Long.toString(epoch, 36) + "-" + revision.get();
+    }
+
+    void increment() {
+        revision.incrementAndGet();
+    }
+}
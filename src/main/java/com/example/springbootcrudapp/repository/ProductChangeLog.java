@@ -0,0 +1,203 @@
+package com.example.springbootcrudapp.repository;
+
+import com.example.springbootcrudapp.dao.ProductDao;
+import com.example.springbootcrudapp.model.Product;
+import com.example.springbootcrudapp.model.ProductChangeType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * Numbers the rows of the change log and publishes a sequence number only once every lower one has been
+ * committed or rolled back, so readers following the published sequence never skip a change that commits
+ * late. Numbers are handed out by this process, which assumes it is the only writer of the products table.
+ */
+@Slf4j
+public class ProductChangeLog implements Closeable {
+    private static final Duration PRUNE_INTERVAL = Duration.ofMinutes(1);
+
+    private final ProductDao productDao;
+    private final Duration retention;
+    private final ScheduledExecutorService executor;
+    private final List<LongSupplier> readers = new CopyOnWriteArrayList<>();
+
+    private final Object lock = new Object();
+    private final TreeSet<Long> uncommitted = new TreeSet<>();
+    private boolean loaded;
+    private long nextSequence;
+    private long published;
+    private long prunedThrough;
+    private CompletableFuture<Long> nextPublication = new CompletableFuture<>();
+
+    public ProductChangeLog(ProductDao productDao, Duration retention) {
+        this.productDao = productDao;
+        this.retention = retention;
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("product-changes-");
+        threadFactory.setDaemon(true);
+        this.executor = Executors.newScheduledThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()),
+                threadFactory);
+    }
+
+    /**
+     * Starts pruning changes older than the retention.
+     */
+    public void start() {
+        long intervalMillis = PRUNE_INTERVAL.toMillis();
+        executor.scheduleWithFixedDelay(this::prune, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * The highest sequence number below which every change is committed or rolled back.
+     */
+    public long published() {
+        synchronized (lock) {
+            load();
+            return published;
+        }
+    }
+
+    /**
+     * The highest sequence number handed out so far, committed or not.
+     */
+    public long reserved() {
+        synchronized (lock) {
+            load();
+            return nextSequence - 1;
+        }
+    }
+
+    /**
+     * Changes up to this sequence number have been pruned; a reader that has not seen them has to resync.
+     */
+    public long prunedThrough() {
+        synchronized (lock) {
+            load();
+            return prunedThrough;
+        }
+    }
+
+    /**
+     * Completes, on a change log thread unless it already can, once a sequence number above the given one is
+     * published.
+     */
+    public CompletableFuture<Long> awaitPublishedAfter(long sequence) {
+        synchronized (lock) {
+            load();
+
+            if (published > sequence)
+                return CompletableFuture.completedFuture(published);
+
+            return nextPublication.thenApplyAsync(Function.identity(), executor);
+        }
+    }
+
+    /**
+     * Keeps every change after the reader's position, whatever the retention, for readers such as the outbox
+     * relay that must not miss one.
+     */
+    public void retainAfter(LongSupplier position) {
+        readers.add(position);
+    }
+
+    public int prune() {
+        try {
+            long through = readers.stream().mapToLong(LongSupplier::getAsLong).min().orElse(Long.MAX_VALUE);
+            int pruned = productDao.deleteChangesBefore(Instant.now().minus(retention), through);
+
+            synchronized (lock) {
+                load();
+                prunedThrough = Math.max(prunedThrough, productDao.getFirstChangeSequence() - 1);
+            }
+
+            if (pruned > 0)
+                log.debug("Pruned {} product changes older than {}", pruned, retention);
+
+            return pruned;
+        } catch (RuntimeException e) {
+            log.warn("Could not prune the product change log", e);
+            return 0;
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Logs one change per product through the transaction of the given DAO. The reserved sequence numbers are
+     * added to {@code reservations}, which must be handed to {@link #release} once the transaction has ended.
+     */
+    void append(ProductDao dao, ProductChangeType type, List<Product> products, List<Long> reservations) {
+        if (products.isEmpty())
+            return;
+
+        long first = reserve(products.size());
+        reservations.add(first);
+
+        List<Long> sequences = LongStream.range(first, first + products.size()).boxed().collect(Collectors.toList());
+
+        if (type == ProductChangeType.DELETED)
+            dao.appendDeletions(sequences, products);
+        else
+            dao.appendChanges(sequences, type, products);
+    }
+
+    void release(List<Long> reservations) {
+        if (reservations.isEmpty())
+            return;
+
+        CompletableFuture<Long> publication;
+        long publishedNow;
+
+        synchronized (lock) {
+            uncommitted.removeAll(reservations);
+
+            long publishable = uncommitted.isEmpty() ? nextSequence - 1 : uncommitted.first() - 1;
+            if (publishable <= published)
+                return;
+
+            published = publishedNow = publishable;
+            publication = nextPublication;
+            nextPublication = new CompletableFuture<>();
+        }
+
+        publication.complete(publishedNow);
+    }
+
+    private long reserve(int count) {
+        synchronized (lock) {
+            load();
+
+            long first = nextSequence;
+            nextSequence += count;
+            uncommitted.add(first);
+            return first;
+        }
+    }
+
+    private void load() {
+        if (loaded)
+            return;
+
+        published = productDao.getLastChangeSequence();
+        prunedThrough = productDao.getFirstChangeSequence() - 1;
+        nextSequence = published + 1;
+        loaded = true;
+    }
+}
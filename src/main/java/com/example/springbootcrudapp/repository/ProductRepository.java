@@ -1,49 +1,300 @@
 package com.example.springbootcrudapp.repository;
 
+import com.example.springbootcrudapp.cache.ProductCache;
 import com.example.springbootcrudapp.dao.ProductDao;
+import com.example.springbootcrudapp.dao.ProductRowHandler;
+import com.example.springbootcrudapp.metrics.ProductMetrics;
 import com.example.springbootcrudapp.model.Product;
-import com.example.springbootcrudapp.shared.DatabaseOperationException;
-import org.jdbi.v3.core.Jdbi;
+import com.example.springbootcrudapp.model.ProductChange;
+import com.example.springbootcrudapp.model.ProductChangePage;
+import com.example.springbootcrudapp.model.ProductChangeType;
+import com.example.springbootcrudapp.model.ProductSearch;
+import com.example.springbootcrudapp.model.ProductStats;
+import com.example.springbootcrudapp.replica.ProductReplicaRouter;
+import com.example.springbootcrudapp.shared.EntityNotFoundException;
+import com.example.springbootcrudapp.shared.VersionConflictException;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 import static java.lang.String.format;
 
 @Repository
 public class ProductRepository {
-    private final Jdbi jdbi;
+    private static final String REPOSITORY_TIMER = "product.repository";
+
+    private final ProductDao productDao;
+    private final ProductCache productCache;
+    private final ProductCatalogRevision catalogRevision;
+    private final ProductMetrics productMetrics;
+    private final ProductChangeLog changeLog;
+    private final ProductReplicaRouter replicaRouter;
+    private final SingleFlight<Map.Entry<UUID, String>, Optional<Product>> productByIdFlight;
+    private final SingleFlight<Map.Entry<Integer, String>, List<Product>> firstPageFlight;
 
     @Autowired
-    public ProductRepository(Jdbi jdbi) {
-        this.jdbi = jdbi;
+    public ProductRepository(ProductDao productDao, ProductCache productCache, ProductCatalogRevision catalogRevision,
+                             ProductMetrics productMetrics, ProductChangeLog changeLog,
+                             ProductReplicaRouter replicaRouter, MeterRegistry meterRegistry) {
+        this.productDao = productDao;
+        this.productCache = productCache;
+        this.catalogRevision = catalogRevision;
+        this.productMetrics = productMetrics;
+        this.changeLog = changeLog;
+        this.replicaRouter = replicaRouter;
+        this.productByIdFlight = new SingleFlight<>("getProductById", meterRegistry);
+        this.firstPageFlight = new SingleFlight<>("getFirstProducts", meterRegistry);
     }
 
+    @Timed(REPOSITORY_TIMER)
     public void createProduct(Product product) {
-        jdbi.useExtension(ProductDao.class, productDao -> productDao.createProduct(product));
+        inChangeTransaction((dao, reservations) -> {
+            dao.createProduct(product);
+            changeLog.append(dao, ProductChangeType.CREATED, List.of(product), reservations);
+            return null;
+        });
+
+        catalogRevision.increment();
+        replicaRouter.written(product.getId(), product.getVersion());
+        productCache.put(product);
+    }
+
+    /**
+     * Updates the product in a single statement, conditional on its version unless it has none, and
+     * returns the stored state. Only when nothing was updated is the row looked up, to tell a missing product
+     * from a stale version.
+     */
+    @Timed(REPOSITORY_TIMER)
+    public Product updateProduct(Product product) {
+        Long version = inChangeTransaction((dao, reservations) -> {
+            Long updatedVersion = product.getVersion() == Product.NO_VERSION
+                    ? dao.updateProductIgnoringVersion(product)
+                    : dao.updateProduct(product);
+
+            if (updatedVersion != null)
+                changeLog.append(dao, ProductChangeType.UPDATED, List.of(product), reservations);
+
+            return updatedVersion;
+        });
+
+        if (version == null)
+            failWrite(product.getId(), "update");
+
+        catalogRevision.increment();
+        replicaRouter.written(product.getId(), version);
+
+        Product updatedProduct = product.toBuilder().version(version).build();
+        productCache.put(updatedProduct);
+        return updatedProduct;
+    }
+
+    @Timed(REPOSITORY_TIMER)
+    public void deleteProduct(UUID id, Long version) {
+        try {
+            boolean isSuccess = inChangeTransaction((dao, reservations) -> {
+                boolean deleted = version == null
+                        ? dao.deleteProductIgnoringVersion(id)
+                        : dao.deleteProduct(id, version);
+
+                if (deleted) {
+                    Product tombstone = Product.builder().id(id).version(version == null ? Product.NO_VERSION : version).build();
+                    changeLog.append(dao, ProductChangeType.DELETED, List.of(tombstone), reservations);
+                }
+
+                return deleted;
+            });
+
+            if (!isSuccess)
+                failWrite(id, "delete");
+
+            catalogRevision.increment();
+            replicaRouter.deleted(id);
+        } finally {
+            productCache.invalidate(id);
+        }
     }
 
-    public void updateProduct(Product product) {
-        boolean isSuccess = jdbi.withExtension(ProductDao.class, productDao -> productDao.updateProduct(product));
+    /**
+     * Runs the callback inside one transaction. Cached entries for every updated or deleted product are
+     * evicted once the transaction ends, or the whole cache is cleared if more ids were touched than it can hold.
+     */
+    @Timed(REPOSITORY_TIMER)
+    public <T> T inBatch(Function<ProductBatchWriter, T> callback) {
+        int maxTrackedIds = (int) Math.min(productCache.maximumSize(), Integer.MAX_VALUE);
+        AtomicReference<ProductBatchWriter> writer = new AtomicReference<>();
 
-        if (!isSuccess)
-            throw new DatabaseOperationException(format("Error updating product record [%s]", product.getId()));
+        try {
+            return inChangeTransaction((transactionalDao, reservations) -> {
+                writer.set(new ProductBatchWriter(transactionalDao, productMetrics, maxTrackedIds, changeLog, reservations,
+                        replicaRouter));
+                return callback.apply(writer.get());
+            });
+        } finally {
+            catalogRevision.increment();
+
+            if (writer.get() != null)
+                evictTouchedProducts(writer.get());
+        }
     }
 
-    public void deleteProduct(String id, Long version) {
-        boolean isSuccess = jdbi.withExtension(ProductDao.class, productDao -> productDao.deleteProduct(id, version));
+    public String getCatalogRevision() {
+        return catalogRevision.current();
+    }
+
+    /**
+     * Returns published changes after the given sequence number, oldest first.
+     */
+    @Timed(REPOSITORY_TIMER)
+    public ProductChangePage getChanges(long after, int limit) {
+        long through = changeLog.published();
+        List<ProductChange> changes = productDao.getChanges(after, through, limit);
+
+        long next = changes.size() == limit ? changes.get(changes.size() - 1).getSequence() : through;
+        return new ProductChangePage(changes, Math.max(next, after));
+    }
+
+    public CompletableFuture<Long> awaitChangesAfter(long sequence) {
+        return changeLog.awaitPublishedAfter(sequence);
+    }
+
+    public long getPublishedChangeSequence() {
+        return changeLog.published();
+    }
+
+    /**
+     * Sequence numbers a reader can continue from without having missed a change lie between the pruned
+     * and the reserved one.
+     */
+    public long getPrunedChangeSequence() {
+        return changeLog.prunedThrough();
+    }
 
-        if (!isSuccess)
-            throw new DatabaseOperationException(format("Error deleting product record [%s]", id));
+    public long getReservedChangeSequence() {
+        return changeLog.reserved();
     }
 
-    public List<Product> getAllProducts() {
-        return jdbi.withExtension(ProductDao.class, productDao -> productDao.getAllProducts());
+    /**
+     * The sequence number the named outbox relay has published through, 0 before its first batch.
+     */
+    @Timed(REPOSITORY_TIMER)
+    public long getRelayedThrough(String relay) {
+        return productDao.getRelayedThrough(relay).orElse(0L);
+    }
+
+    @Timed(REPOSITORY_TIMER)
+    public void saveRelayedThrough(String relay, long relayedThrough) {
+        productDao.saveRelayedThrough(relay, relayedThrough);
+    }
+
+    /**
+     * Statistics per manufacturer, computed by the database over the whole products table.
+     */
+    @Timed(REPOSITORY_TIMER)
+    public List<ProductStats> getStatsByManufacturer() {
+        return replicaRouter.readCatalog(ProductDao::getStatsByManufacturer);
+    }
+
+    /**
+     * Every client paging through the catalog starts at the first page, so concurrent requests for it with the
+     * same limit at the same catalog revision share one query and its unmodifiable list. Pages, searches and
+     * scans are read from a replica when there are any, see {@link ProductReplicaRouter}.
+     */
+    @Timed(REPOSITORY_TIMER)
+    public List<Product> getProducts(UUID after, int limit) {
+        if (after == null)
+            return firstPageFlight.execute(Map.entry(limit, catalogRevision.current()),
+                    () -> Collections.unmodifiableList(replicaRouter.readCatalog(dao -> dao.getFirstProducts(limit))));
+
+        return replicaRouter.readCatalog(dao -> dao.getProductsAfter(after, limit));
+    }
+
+    /**
+     * Returns the products with the given ids that exist, in no particular order.
+     */
+    @Timed(REPOSITORY_TIMER)
+    public List<Product> getProductsByIds(Collection<UUID> ids) {
+        if (ids.isEmpty())
+            return List.of();
+
+        return replicaRouter.getProductsByIds(ids);
+    }
+
+    @Timed(REPOSITORY_TIMER)
+    public List<Product> searchProducts(ProductSearch search) {
+        return replicaRouter.readCatalog(dao -> dao.searchProducts(search));
+    }
+
+    /**
+     * Streams products ordered by id to the consumer while the underlying handle stays open, so callers
+     * never hold more than one fetch of rows in memory.
+     */
+    @Timed(REPOSITORY_TIMER)
+    public void forEachProduct(UUID after, Consumer<Product> consumer) {
+        replicaRouter.scanCatalog(dao -> dao.forEachProduct(after, consumer));
+    }
+
+    /**
+     * Like {@link #forEachProduct}, but hands the handler the raw rows instead of mapped products.
+     */
+    @Timed(REPOSITORY_TIMER)
+    public void scanProducts(UUID after, ProductRowHandler handler) {
+        replicaRouter.scanCatalog(dao -> dao.scanProducts(after, handler));
+    }
+
+    /**
+     * Cache misses for the same product share one query. Lookups only join a query started at the same catalog
+     * revision, so a caller whose write has returned never gets a result read before it.
+     */
+    @Timed(REPOSITORY_TIMER)
+    public Optional<Product> getProductById(UUID id) {
+        return productCache.get(id, key -> productByIdFlight.execute(Map.entry(key, catalogRevision.current()),
+                () -> replicaRouter.getProductById(key)));
+    }
+
+    /**
+     * Runs the write and its change log entries in one transaction, and publishes their sequence numbers once
+     * it has ended either way.
+     */
+    private <T> T inChangeTransaction(BiFunction<ProductDao, List<Long>, T> write) {
+        List<Long> reservations = new ArrayList<>();
+
+        try {
+            return productDao.inTransaction(dao -> write.apply(dao, reservations));
+        } finally {
+            changeLog.release(reservations);
+        }
+    }
+
+    private void failWrite(UUID id, String operation) {
+        productCache.invalidate(id);
+
+        if (productDao.getProductVersion(id).isEmpty()) {
+            productMetrics.notFound(operation);
+            throw new EntityNotFoundException("Product with id [%s] not found", id);
+        }
+
+        productMetrics.optimisticLockFailure(operation);
+        throw new VersionConflictException(format("Error on %s of product record [%s]: version conflict", operation, id));
     }
 
-    public Optional<Product> getProductById(String id) {
-        return jdbi.withExtension(ProductDao.class, productDao -> productDao.getProductById(id));
+    private void evictTouchedProducts(ProductBatchWriter writer) {
+        if (writer.hasTooManyTouchedIds())
+            productCache.invalidateAll();
+        else
+            productCache.invalidateAll(writer.getTouchedIds());
     }
 }
@@ -0,0 +1,51 @@
+package com.example.springbootcrudapp.repository;
+
+import com.example.springbootcrudapp.cache.ProductCache;
+import com.example.springbootcrudapp.dao.ProductDao;
+import com.example.springbootcrudapp.model.Product;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Loads the products table and its indexes into the database page cache, and the products changed last into
+ * the product cache, so the first requests after a restart do not all miss.
+ */
+@Slf4j
+public class ProductWarmUp {
+    private static final int CHUNK_SIZE = 1000;
+
+    private final ProductDao productDao;
+    private final ProductCache productCache;
+    private final int maxCachedProducts;
+
+    public ProductWarmUp(ProductDao productDao, ProductCache productCache, int maxCachedProducts) {
+        this.productDao = productDao;
+        this.productCache = productCache;
+        this.maxCachedProducts = maxCachedProducts;
+    }
+
+    /**
+     * Returns the number of products put in the cache.
+     */
+    public int run() {
+        long start = System.nanoTime();
+        int indexes = productDao.warmUpProducts();
+
+        int limit = (int) Math.min(maxCachedProducts, productCache.maximumSize());
+        List<UUID> ids = limit > 0 ? productDao.getRecentlyChangedIds(limit) : List.of();
+        int cached = 0;
+
+        for (int from = 0; from < ids.size(); from += CHUNK_SIZE) {
+            for (Product product : productDao.getProductsByIds(ids.subList(from, Math.min(from + CHUNK_SIZE, ids.size())))) {
+                productCache.put(product);
+                cached++;
+            }
+        }
+
+        log.info("Warmed up the products table and {} indexes, and cached {} recently changed products, in {} ms",
+                indexes, cached, (System.nanoTime() - start) / 1_000_000);
+        return cached;
+    }
+}
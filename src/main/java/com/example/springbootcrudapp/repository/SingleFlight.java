@@ -0,0 +1,67 @@
+package com.example.springbootcrudapp.repository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent calls with equal keys into one: the first caller runs the query, callers arriving while
+ * it is in flight wait for and share its result or exception. Nothing is kept once the query returns, so a call
+ * made afterwards always runs a query of its own.
+ * <p>
+ * Counts {@code product.repository.single.flight{operation, role}}, where {@code role=leader} calls queried the
+ * database and {@code role=follower} calls were collapsed into one of them.
+ */
+public class SingleFlight<K, V> {
+    private static final String CALLS = "product.repository.single.flight";
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter leaders;
+    private final Counter followers;
+
+    public SingleFlight(String operation, MeterRegistry meterRegistry) {
+        this.leaders = meterRegistry.counter(CALLS, "operation", operation, "role", "leader");
+        this.followers = meterRegistry.counter(CALLS, "operation", operation, "role", "follower");
+    }
+
+    public V execute(K key, Supplier<V> query) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> leader = inFlight.putIfAbsent(key, flight);
+
+        if (leader != null) {
+            followers.increment();
+            return await(leader);
+        }
+
+        leaders.increment();
+
+        try {
+            V value = query.get();
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error)
+                throw (Error) e.getCause();
+
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.springbootcrudapp.schema;
+
+import liquibase.exception.LiquibaseException;
+import liquibase.integration.spring.SpringLiquibase;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Skips Liquibase when the change log is the one last applied to this database, which saves parsing and
+ * validating every change set on each start. The checksum covers the change log file, its contexts and labels
+ * but not files it includes, and the skip assumes nothing but this application changes the schema. Whenever
+ * the checksum cannot be read, Liquibase runs as usual.
+ */
+@Slf4j
+public class ChecksumSkippingLiquibase extends SpringLiquibase {
+    static final String CHECKSUM_TABLE = "schema_checksums";
+
+    @Override
+    public void afterPropertiesSet() throws LiquibaseException {
+        if (!shouldRun) {
+            super.afterPropertiesSet();
+            return;
+        }
+
+        String checksum = checksum();
+
+        if (isCurrent(checksum)) {
+            log.info("Schema is current with {} [{}], skipping Liquibase", getChangeLog(), checksum);
+            return;
+        }
+
+        super.afterPropertiesSet();
+        saveChecksum(checksum);
+    }
+
+    /**
+     * Whether the change log, as it is now, was the last one applied.
+     */
+    public boolean isCurrent() {
+        return isCurrent(checksum());
+    }
+
+    private boolean isCurrent(String checksum) {
+        return appliedChecksum().filter(checksum::equals).isPresent();
+    }
+
+    String checksum() {
+        Resource resource = getResourceLoader().getResource(getChangeLog());
+
+        try (InputStream input = resource.getInputStream()) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(input.readAllBytes());
+            digest.update(Objects.toString(getContexts(), "").getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(Objects.toString(getLabels(), "").getBytes(StandardCharsets.UTF_8));
+            return String.format("%064x", new BigInteger(1, digest.digest()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Optional<String> appliedChecksum() {
+        try (Connection connection = getDataSource().getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "SELECT checksum FROM " + CHECKSUM_TABLE + " WHERE change_log = ?")) {
+            statement.setString(1, getChangeLog());
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? Optional.of(resultSet.getString(1)) : Optional.empty();
+            }
+        } catch (SQLException e) {
+            log.debug("No schema checksum for {}, running Liquibase", getChangeLog(), e);
+            return Optional.empty();
+        }
+    }
+
+    private void saveChecksum(String checksum) {
+        try (Connection connection = getDataSource().getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "MERGE INTO " + CHECKSUM_TABLE + " (change_log, checksum, applied_at) KEY (change_log)" +
+                             " VALUES (?, ?, CURRENT_TIMESTAMP)")) {
+            statement.setString(1, getChangeLog());
+            statement.setString(2, checksum);
+            statement.executeUpdate();
+
+            if (!connection.getAutoCommit())
+                connection.commit();
+        } catch (SQLException e) {
+            log.warn("Could not save the schema checksum for {}, Liquibase runs again on the next start",
+                    getChangeLog(), e);
+        }
+    }
+}
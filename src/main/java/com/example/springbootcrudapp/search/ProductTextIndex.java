@@ -0,0 +1,527 @@
+package com.example.springbootcrudapp.search;
+
+import com.example.springbootcrudapp.model.Product;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over product names and manufacturers. Both are split into lower-case alphanumeric
+ * terms, and every term maps to the documents containing it. The sorted vocabulary also yields prefix matches,
+ * and typos are tolerated by matching unknown query terms against it through a trigram index, so only the
+ * postings of similar terms are ever scanned.
+ * <p>
+ * Documents get dense int ids; an update retires the old id and appends a new one, and retired ids are
+ * compacted away once they outnumber the live ones. Each document keeps its product's version, so a put that
+ * arrives after a newer one for the same product is ignored. Queries share a read lock, writes take the write
+ * lock.
+ */
+public class ProductTextIndex implements MeterBinder {
+    private static final double MIN_SIMILARITY = 0.4;
+    private static final double PREFIX_SIMILARITY = 0.8;
+    private static final int MIN_PREFIX_LENGTH = 3;
+    private static final int MAX_PREFIX_MATCHES = 64;
+    private static final int MIN_COMPACTION_SIZE = 1024;
+    private static final int UUID_BYTES = 32;
+    /**
+     * Terms in more than this share of the documents only rescore products that rarer terms already matched.
+     */
+    private static final int COMMON_TERM_RATIO = 16;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<UUID, Integer> docIds = new HashMap<>();
+    private final NavigableMap<String, Postings> postingsByTerm = new TreeMap<>();
+    private final Map<String, List<String>> termsByTrigram = new HashMap<>();
+    private final ThreadLocal<ScoreBuffer> scoreBuffers = ThreadLocal.withInitial(ScoreBuffer::new);
+    private UUID[] productIds = new UUID[MIN_COMPACTION_SIZE];
+    private long[] versions = new long[MIN_COMPACTION_SIZE];
+    private BitSet liveDocs = new BitSet();
+    private int nextDocId;
+
+    /**
+     * Indexes the product, unless a newer version of it is indexed already.
+     */
+    public void put(Product product) {
+        lock.writeLock().lock();
+
+        try {
+            Integer indexed = docIds.get(product.getId());
+            if (indexed != null && versions[indexed] > product.getVersion())
+                return;
+
+            removeDocument(product.getId());
+
+            int docId = nextDocId++;
+            if (docId == productIds.length) {
+                productIds = Arrays.copyOf(productIds, docId * 2);
+                versions = Arrays.copyOf(versions, docId * 2);
+            }
+
+            productIds[docId] = product.getId();
+            versions[docId] = product.getVersion();
+            docIds.put(product.getId(), docId);
+            liveDocs.set(docId);
+
+            for (String term : tokenize(product.getProductName() + " " + product.getManufacturer()))
+                postingsByTerm.computeIfAbsent(term, this::addTerm).add(docId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(UUID productId) {
+        lock.writeLock().lock();
+
+        try {
+            removeDocument(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of the best matching products, best first. Each query term contributes the weight of its
+     * most similar indexed term, similarity times inverse document frequency, to every product containing it.
+     * <p>
+     * Postings of selective terms are scanned first. Terms common to a large share of the catalog then only
+     * rescore the products already found, by binary search in their postings, unless nothing was found yet;
+     * a query mixing a rare and a ubiquitous word thus never walks the ubiquitous word's postings.
+     */
+    public List<UUID> search(String query, int limit) {
+        Set<String> queryTerms = tokenize(query);
+        ScoreBuffer buffer = scoreBuffers.get();
+
+        lock.readLock().lock();
+
+        try {
+            buffer.reset(nextDocId);
+            int commonSize = Math.max(MIN_COMPACTION_SIZE, docIds.size() / COMMON_TERM_RATIO);
+            List<List<WeightedTerm>> matches = new ArrayList<>(queryTerms.size());
+
+            for (String queryTerm : queryTerms)
+                matches.add(similarTerms(queryTerm));
+
+            if (matches.size() == 1 && matches.get(0).size() == 1)
+                return firstLive(postingsByTerm.get(matches.get(0).get(0).term), limit);
+
+            for (int pass = 1; pass <= matches.size(); pass++)
+                for (WeightedTerm term : matches.get(pass - 1))
+                    if (postingsByTerm.get(term.term).size <= commonSize)
+                        scan(postingsByTerm.get(term.term), pass, term.weight, buffer);
+
+            boolean rescoreOnly = buffer.touched.size > 0;
+
+            for (int pass = 1; pass <= matches.size(); pass++) {
+                for (WeightedTerm term : matches.get(pass - 1)) {
+                    Postings postings = postingsByTerm.get(term.term);
+
+                    if (postings.size <= commonSize)
+                        continue;
+
+                    if (rescoreOnly)
+                        rescore(postings, pass, term.weight, buffer);
+                    else
+                        scan(postings, pass, term.weight, buffer);
+                }
+            }
+
+            List<UUID> ids = new ArrayList<>(Math.min(limit, buffer.touched.size));
+            for (int docId : buffer.top(limit, liveDocs))
+                ids.add(productIds[docId]);
+
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+
+        try {
+            return docIds.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * An estimate of the heap held by the index, counting arrays, strings and map entries with the usual
+     * 64-bit compressed-oops sizes.
+     */
+    public long estimatedBytes() {
+        lock.readLock().lock();
+
+        try {
+            long bytes = 32L + 12L * productIds.length + liveDocs.size() / 8 + (32L + 16 + UUID_BYTES) * docIds.size();
+
+            for (Map.Entry<String, Postings> term : postingsByTerm.entrySet())
+                bytes += 40 + stringBytes(term.getKey()) + 24 + 16 + 4L * term.getValue().docs.length;
+
+            for (Map.Entry<String, List<String>> trigram : termsByTrigram.entrySet())
+                bytes += 32 + stringBytes(trigram.getKey()) + 24 + 16 + 4L * trigram.getValue().size();
+
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("product.search.index.documents", this, ProductTextIndex::size).register(registry);
+        Gauge.builder("product.search.index.terms", this, index -> index.postingsByTerm.size()).register(registry);
+        Gauge.builder("product.search.index.memory", this, ProductTextIndex::estimatedBytes)
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    static Set<String> tokenize(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        StringBuilder term = new StringBuilder();
+
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+
+            if (Character.isLetterOrDigit(c)) {
+                term.append(Character.toLowerCase(c));
+            } else if (term.length() > 0) {
+                terms.add(term.toString());
+                term.setLength(0);
+            }
+        }
+
+        return terms;
+    }
+
+    /**
+     * The trigrams of a term padded with {@code $}, so short terms still have some and the ends of a term
+     * weigh as much as its middle.
+     */
+    static Set<String> trigrams(String term) {
+        String padded = "$" + term + "$";
+        Set<String> trigrams = new LinkedHashSet<>();
+
+        for (int i = 0; i + 3 <= padded.length(); i++)
+            trigrams.add(padded.substring(i, i + 3));
+
+        if (trigrams.isEmpty())
+            trigrams.add(padded);
+
+        return trigrams;
+    }
+
+    /**
+     * The indexed terms a query term matches: itself, up to {@link #MAX_PREFIX_MATCHES} terms it is a prefix
+     * of and, only when the term itself is not indexed, terms sharing enough trigrams with it. Numbers are never
+     * matched fuzzily; a digit off is a different product, not a typo.
+     */
+    private List<WeightedTerm> similarTerms(String queryTerm) {
+        List<WeightedTerm> terms = new ArrayList<>();
+
+        if (postingsByTerm.containsKey(queryTerm))
+            terms.add(weigh(queryTerm, 1.0));
+
+        if (queryTerm.length() >= MIN_PREFIX_LENGTH) {
+            postingsByTerm.subMap(queryTerm, false, queryTerm + Character.MAX_VALUE, false).keySet().stream()
+                    .limit(MAX_PREFIX_MATCHES)
+                    .forEach(term -> terms.add(weigh(term, PREFIX_SIMILARITY)));
+        }
+
+        if (!terms.isEmpty() || isNumber(queryTerm))
+            return terms;
+
+        Set<String> queryTrigrams = trigrams(queryTerm);
+        Map<String, Integer> sharedTrigrams = new HashMap<>();
+
+        for (String trigram : queryTrigrams)
+            for (String term : termsByTrigram.getOrDefault(trigram, List.of()))
+                sharedTrigrams.merge(term, 1, Integer::sum);
+
+        for (Map.Entry<String, Integer> candidate : sharedTrigrams.entrySet()) {
+            int trigramCount = postingsByTerm.get(candidate.getKey()).trigramCount;
+            double similarity = 2.0 * candidate.getValue() / (queryTrigrams.size() + trigramCount);
+
+            if (similarity >= MIN_SIMILARITY)
+                terms.add(weigh(candidate.getKey(), similarity));
+        }
+
+        return terms;
+    }
+
+    /**
+     * Similarity times inverse document frequency, so rare terms outweigh common ones.
+     */
+    private WeightedTerm weigh(String term, double similarity) {
+        double idf = Math.log(1 + (double) docIds.size() / postingsByTerm.get(term).size);
+        return new WeightedTerm(term, (float) (similarity * idf));
+    }
+
+    private static boolean isNumber(String term) {
+        return term.chars().allMatch(Character::isDigit);
+    }
+
+    /**
+     * When every match scores the same, ties go to the oldest documents, so the first live ones are the best.
+     */
+    private List<UUID> firstLive(Postings postings, int limit) {
+        List<UUID> ids = new ArrayList<>(Math.min(limit, postings.size));
+
+        for (int i = 0; i < postings.size && ids.size() < limit; i++)
+            if (liveDocs.get(postings.docs[i]))
+                ids.add(productIds[postings.docs[i]]);
+
+        return ids;
+    }
+
+    private static void scan(Postings postings, int pass, float weight, ScoreBuffer buffer) {
+        for (int i = 0; i < postings.size; i++)
+            buffer.add(postings.docs[i], pass, weight);
+    }
+
+    private static void rescore(Postings postings, int pass, float weight, ScoreBuffer buffer) {
+        for (int i = 0; i < buffer.touched.size; i++) {
+            int docId = buffer.touched.docs[i];
+
+            if (Arrays.binarySearch(postings.docs, 0, postings.size, docId) >= 0)
+                buffer.add(docId, pass, weight);
+        }
+    }
+
+    private Postings addTerm(String term) {
+        Postings postings = new Postings();
+
+        for (String trigram : trigrams(term)) {
+            termsByTrigram.computeIfAbsent(trigram, key -> new ArrayList<>(1)).add(term);
+            postings.trigramCount++;
+        }
+
+        return postings;
+    }
+
+    private void removeDocument(UUID productId) {
+        Integer docId = docIds.remove(productId);
+
+        if (docId == null)
+            return;
+
+        liveDocs.clear(docId);
+        productIds[docId] = null;
+
+        int retired = nextDocId - docIds.size();
+        if (retired >= MIN_COMPACTION_SIZE && retired > docIds.size())
+            compact();
+    }
+
+    /**
+     * Renumbers the live documents densely and drops retired ids from every posting list, along with terms no
+     * live document contains any more.
+     */
+    private void compact() {
+        int[] remapped = new int[nextDocId];
+        UUID[] compactedIds = new UUID[Math.max(MIN_COMPACTION_SIZE, docIds.size() * 2)];
+        long[] compactedVersions = new long[compactedIds.length];
+        int docCount = 0;
+
+        for (int docId = 0; docId < nextDocId; docId++) {
+            remapped[docId] = liveDocs.get(docId) ? docCount : -1;
+
+            if (liveDocs.get(docId)) {
+                compactedIds[docCount] = productIds[docId];
+                compactedVersions[docCount] = versions[docId];
+                docIds.put(productIds[docId], docCount++);
+            }
+        }
+
+        postingsByTerm.entrySet().removeIf(term -> {
+            term.getValue().remap(remapped);
+
+            if (term.getValue().size > 0)
+                return false;
+
+            for (String trigram : trigrams(term.getKey())) {
+                List<String> terms = termsByTrigram.get(trigram);
+                terms.remove(term.getKey());
+
+                if (terms.isEmpty())
+                    termsByTrigram.remove(trigram);
+            }
+
+            return true;
+        });
+
+        productIds = compactedIds;
+        versions = compactedVersions;
+        nextDocId = docCount;
+        liveDocs = new BitSet(docCount);
+        liveDocs.set(0, docCount);
+    }
+
+    private static long stringBytes(String value) {
+        return 24 + 16 + value.length();
+    }
+
+    private static final class WeightedTerm {
+        private final String term;
+        private final float weight;
+
+        private WeightedTerm(String term, float weight) {
+            this.term = term;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Document ids in ascending order, since ids are only ever appended.
+     */
+    private static final class Postings {
+        private int[] docs = new int[2];
+        private int size;
+        private int trigramCount;
+
+        private void add(int docId) {
+            if (size == docs.length)
+                docs = Arrays.copyOf(docs, size * 2);
+
+            docs[size++] = docId;
+        }
+
+        private void remap(int[] remapped) {
+            int kept = 0;
+
+            for (int i = 0; i < size; i++)
+                if (remapped[docs[i]] >= 0)
+                    docs[kept++] = remapped[docs[i]];
+
+            size = kept;
+            docs = Arrays.copyOf(docs, Math.max(2, kept));
+        }
+    }
+
+    /**
+     * Per-thread score accumulator, reused across queries so a search allocates nothing proportional to the
+     * catalog. {@code passes} and {@code passWeights} record the last query term that scored a document and
+     * with what weight, so each query term counts only its best match.
+     */
+    private static final class ScoreBuffer {
+        private float[] scores = new float[0];
+        private float[] passWeights = new float[0];
+        private int[] passes = new int[0];
+        private final Postings touched = new Postings();
+
+        private void reset(int docCount) {
+            for (int i = 0; i < touched.size; i++) {
+                scores[touched.docs[i]] = 0;
+                passes[touched.docs[i]] = 0;
+            }
+
+            touched.size = 0;
+
+            if (scores.length < docCount) {
+                scores = new float[docCount];
+                passWeights = new float[docCount];
+                passes = new int[docCount];
+            }
+        }
+
+        private void add(int docId, int pass, float weight) {
+            if (passes[docId] == 0)
+                touched.add(docId);
+
+            if (passes[docId] != pass) {
+                passes[docId] = pass;
+                passWeights[docId] = weight;
+                scores[docId] += weight;
+            } else if (weight > passWeights[docId]) {
+                scores[docId] += weight - passWeights[docId];
+                passWeights[docId] = weight;
+            }
+        }
+
+        private int[] top(int limit, BitSet liveDocs) {
+            int[] heap = new int[Math.min(limit, touched.size)];
+            int size = 0;
+
+            for (int i = 0; i < touched.size; i++) {
+                int docId = touched.docs[i];
+
+                if (!liveDocs.get(docId))
+                    continue;
+
+                if (size < heap.length) {
+                    heap[size++] = docId;
+                    siftUp(heap, size - 1);
+                } else if (size > 0 && better(docId, heap[0])) {
+                    heap[0] = docId;
+                    siftDown(heap, size);
+                }
+            }
+
+            int[] ranked = Arrays.copyOf(heap, size);
+            for (int end = size - 1; end > 0; end--) {
+                int worst = ranked[0];
+                ranked[0] = ranked[end];
+                ranked[end] = worst;
+                siftDown(ranked, end);
+            }
+
+            return ranked;
+        }
+
+        /**
+         * Higher score wins; equal scores go to the older document, so results are deterministic.
+         */
+        private boolean better(int a, int b) {
+            return scores[a] > scores[b] || scores[a] == scores[b] && a < b;
+        }
+
+        private void siftUp(int[] heap, int index) {
+            while (index > 0) {
+                int parent = (index - 1) / 2;
+
+                if (!better(heap[parent], heap[index]))
+                    return;
+
+                swap(heap, parent, index);
+                index = parent;
+            }
+        }
+
+        private void siftDown(int[] heap, int size) {
+            int index = 0;
+
+            while (2 * index + 1 < size) {
+                int child = 2 * index + 1;
+
+                if (child + 1 < size && better(heap[child], heap[child + 1]))
+                    child++;
+
+                if (!better(heap[index], heap[child]))
+                    return;
+
+                swap(heap, index, child);
+                index = child;
+            }
+        }
+
+        private static void swap(int[] heap, int a, int b) {
+            int tmp = heap[a];
+            heap[a] = heap[b];
+            heap[b] = tmp;
+        }
+    }
+}
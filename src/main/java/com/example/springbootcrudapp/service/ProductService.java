@@ -1,88 +1,449 @@
 package com.example.springbootcrudapp.service;
 
+import com.example.springbootcrudapp.dao.ProductRowHandler;
+import com.example.springbootcrudapp.id.ProductIdGenerator;
+import com.example.springbootcrudapp.metrics.ProductMetrics;
 import com.example.springbootcrudapp.model.Product;
+import com.example.springbootcrudapp.model.ProductBatchResult;
+import com.example.springbootcrudapp.model.ProductBatchStatus;
+import com.example.springbootcrudapp.model.ProductChangePage;
+import com.example.springbootcrudapp.model.ProductSearch;
+import com.example.springbootcrudapp.model.ProductStats;
+import com.example.springbootcrudapp.repository.ProductBatchWriter;
 import com.example.springbootcrudapp.repository.ProductRepository;
+import com.example.springbootcrudapp.search.ProductTextIndex;
+import com.example.springbootcrudapp.shared.ChangeCursorExpiredException;
 import com.example.springbootcrudapp.shared.EntityNotFoundException;
 import com.example.springbootcrudapp.shared.InvalidDataException;
+import com.example.springbootcrudapp.stats.ProductStatistics;
+import com.example.springbootcrudapp.writebehind.ProductWriteBehindQueue;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
-
-import static java.lang.String.format;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 
 @Service
 public class ProductService {
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final int BATCH_CHUNK_SIZE = 1000;
+    /**
+     * The most products one batch request may carry; larger loads go through {@code POST /products/imports}.
+     */
+    public static final int MAX_BATCH_SIZE = 10_000;
+
     private final ProductRepository productRepository;
+    private final ProductMetrics productMetrics;
+    private final ProductTextIndex productTextIndex;
+    private final ProductStatistics productStatistics;
+    private final ProductIdGenerator productIdGenerator;
+    private final Optional<ProductWriteBehindQueue> productWriteBehindQueue;
 
     @Autowired
-    public ProductService(ProductRepository productRepository) {
+    public ProductService(ProductRepository productRepository, ProductMetrics productMetrics,
+                          ProductTextIndex productTextIndex, ProductStatistics productStatistics,
+                          ProductIdGenerator productIdGenerator,
+                          Optional<ProductWriteBehindQueue> productWriteBehindQueue) {
         this.productRepository = productRepository;
+        this.productMetrics = productMetrics;
+        this.productTextIndex = productTextIndex;
+        this.productStatistics = productStatistics;
+        this.productIdGenerator = productIdGenerator;
+        this.productWriteBehindQueue = productWriteBehindQueue;
     }
 
     public Product createProduct(String productName, String manufacturer, Double price) {
-        validatePrice(price);
+        Product product = newProduct(productName, manufacturer, price);
+
+        productRepository.createProduct(product);
+        productTextIndex.put(product);
+        productStatistics.put(product);
+        return product;
+    }
+
+    public List<ProductBatchResult> createProducts(Iterator<Product> products) {
+        return processBatch(products,
+                product -> newProduct(product.getProductName(), product.getManufacturer(), product.getPrice()),
+                writer -> chunk -> {
+                    writer.createProducts(chunk);
+                    return Collections.nCopies(chunk.size(), ProductBatchStatus.CREATED);
+                });
+    }
+
+    /**
+     * Checks a product to import against the rules of {@link #createProduct}.
+     */
+    public void validateNewProduct(Product product) {
+        validateProductDetails(product.getProductName(), product.getManufacturer(), product.getPrice());
+    }
+
+    /**
+     * Gives validated products new ids and inserts them as one JDBC batch, in a transaction of their own.
+     * Returns the products as inserted.
+     */
+    public List<Product> importProducts(List<Product> products) {
+        List<Product> created = new ArrayList<>(products.size());
+
+        for (Product product : products)
+            created.add(product.toBuilder().id(productIdGenerator.nextId()).version(1).build());
+
+        productRepository.inBatch(writer -> {
+            writer.createProducts(created);
+            return null;
+        });
+
+        for (Product product : created) {
+            productTextIndex.put(product);
+            productStatistics.put(product);
+        }
+
+        return created;
+    }
+
+    /**
+     * Updates the product if it is still at the version the caller last saw, or unconditionally when the
+     * product carries no version.
+     */
+    public Product updateProduct(Product product, UUID id) {
+        validateId(id);
+        validateProductDetails(product.getProductName(), product.getManufacturer(), product.getPrice());
+
+        Product productToUpdate = product.toBuilder().id(id).build();
+
+        Product updatedProduct = productRepository.updateProduct(productToUpdate);
+        productTextIndex.put(updatedProduct);
+        productStatistics.put(updatedProduct);
+        return updatedProduct;
+    }
+
+    /**
+     * Validates the update and hands it to the write-behind queue, which journals it and writes it with the next
+     * flush. Returns false when write-behind is disabled or the queue is full, in which case nothing was queued.
+     */
+    public boolean queueProductUpdate(Product product, UUID id) {
+        if (productWriteBehindQueue.isEmpty())
+            return false;
+
+        validateId(id);
+        validateProductDetails(product.getProductName(), product.getManufacturer(), product.getPrice());
+
+        return productWriteBehindQueue.get().offer(product.toBuilder().id(id).build());
+    }
+
+    public List<ProductBatchResult> updateProducts(Iterator<Product> products) {
+        return processBatch(products, product -> {
+            validateId(product.getId());
+            validateVersion(product.getVersion());
+            validateProductDetails(product.getProductName(), product.getManufacturer(), product.getPrice());
+            return product;
+        }, writer -> writer::updateProducts);
+    }
+
+    /**
+     * Deletes the product if it is still at the given version, or unconditionally when the version is null.
+     */
+    public void deleteProduct(UUID id, Long version) {
+        validateId(id);
+
+        productRepository.deleteProduct(id, version);
+        productTextIndex.remove(id);
+        productStatistics.remove(id);
+    }
+
+    public List<ProductBatchResult> deleteProducts(Iterator<Product> products) {
+        return processBatch(products, product -> {
+            validateId(product.getId());
+            validateVersion(product.getVersion());
+            return product;
+        }, writer -> writer::deleteProducts);
+    }
+
+    public Product getProductById(UUID id) {
+        validateId(id);
+
+        Product product = productRepository.getProductById(id).orElse(null);
+
+        if (product == null) {
+            productMetrics.notFound("get");
+            throw new EntityNotFoundException("Product with id [%s] not found", id);
+        }
+
+        return product;
+    }
+
+    public String getCatalogRevision() {
+        return productRepository.getCatalogRevision();
+    }
+
+    public List<Product> getProducts(UUID after, int limit) {
+        validateLimit(limit);
+
+        return productRepository.getProducts(after, limit);
+    }
+
+    public List<Product> searchProducts(ProductSearch search) {
+        validateLimit(search.getLimit());
+
+        if (search.getOffset() < 0)
+            throw new InvalidDataException("Invalid offset [%d]", search.getOffset());
+        if (search.getMinPrice() != null)
+            validatePriceBound(search.getMinPrice(), search::getMinPriceMinor);
+        if (search.getMaxPrice() != null)
+            validatePriceBound(search.getMaxPrice(), search::getMaxPriceMinor);
+        if (search.getMinPrice() != null && search.getMaxPrice() != null && search.getMinPrice() > search.getMaxPrice())
+            throw new InvalidDataException("Invalid price range [%f, %f]", search.getMinPrice(), search.getMaxPrice());
 
-        String id = UUID.randomUUID().toString();
-        Long version = 1L;
+        return productRepository.searchProducts(search);
+    }
+
+    /**
+     * Ranked keyword search over product names and manufacturers, tolerant of typos and partial words. The
+     * index only supplies ids; the products themselves are read from the repository.
+     */
+    public List<Product> searchProductsByText(String query, int limit) {
+        validateLimit(limit);
+
+        if (query == null || query.isBlank())
+            throw new InvalidDataException("Invalid search query [%s]", query);
+
+        List<UUID> ids = productTextIndex.search(query, limit);
+        Map<UUID, Product> products = new HashMap<>();
+
+        for (Product product : productRepository.getProductsByIds(ids))
+            products.put(product.getId(), product);
+
+        List<Product> ranked = new ArrayList<>(products.size());
+        for (UUID id : ids)
+            if (products.containsKey(id))
+                ranked.add(products.get(id));
+
+        return ranked;
+    }
+
+    /**
+     * Statistics of all products, answered from memory.
+     */
+    public ProductStats getStats() {
+        return productStatistics.getStats();
+    }
+
+    /**
+     * Statistics of one manufacturer's products, answered from memory.
+     */
+    public ProductStats getStats(String manufacturer) {
+        validateText(manufacturer, "manufacturer");
+
+        return productStatistics.getStats(manufacturer)
+                .orElseThrow(() -> new EntityNotFoundException("No products of manufacturer [%s]", manufacturer));
+    }
 
-        Product product = Product.builder()
+    public List<ProductStats> getStatsByManufacturer() {
+        return productStatistics.getStatsByManufacturer();
+    }
+
+    public void scanProducts(UUID after, ProductRowHandler handler) {
+        productRepository.scanProducts(after, handler);
+    }
+
+    /**
+     * Returns the changes after {@code since}, waiting until there is one. The future is already complete when
+     * changes were published before the call.
+     */
+    public CompletableFuture<ProductChangePage> awaitChanges(long since, int limit) {
+        validateLimit(limit);
+        validateChangeCursor(since);
+
+        return productRepository.awaitChangesAfter(since)
+                .thenApply(published -> productRepository.getChanges(since, limit));
+    }
+
+    /**
+     * The sequence number to follow changes from after reading the catalog, taken before reading it.
+     */
+    public long getPublishedChangeSequence() {
+        return productRepository.getPublishedChangeSequence();
+    }
+
+    private Product newProduct(String productName, String manufacturer, Double price) {
+        validateProductDetails(productName, manufacturer, price);
+
+        UUID id = productIdGenerator.nextId();
+        long version = 1;
+
+        return Product.builder()
                 .id(id)
                 .version(version)
                 .productName(productName)
                 .manufacturer(manufacturer)
                 .price(price)
                 .build();
+    }
 
-        productRepository.createProduct(product);
-        return product;
+    /**
+     * Validates and writes products in chunks of {@link #BATCH_CHUNK_SIZE}, reading the input lazily so that
+     * only one chunk of products is held at a time. Products failing validation are reported as invalid and
+     * left out of the chunk instead of failing the whole batch.
+     * <p>
+     * The batch is all or nothing: every chunk is written in one transaction, and a failure, such as unreadable
+     * input, rolls back all of them. The text index and the statistics follow the written products only once
+     * the transaction has committed. As the transaction, the results and the written products grow with the
+     * batch, a batch of more than {@link #MAX_BATCH_SIZE} products is rejected and rolled back too.
+     */
+    private List<ProductBatchResult> processBatch(Iterator<Product> products, UnaryOperator<Product> prepare,
+                                                  Function<ProductBatchWriter, Function<List<Product>, List<ProductBatchStatus>>> write) {
+        Map<UUID, Product> written = new HashMap<>();
+        List<ProductBatchResult> results = productRepository.inBatch(
+                writer -> writeBatch(products, prepare, write.apply(writer), written));
+
+        for (Map.Entry<UUID, Product> product : written.entrySet()) {
+            if (product.getValue() == null) {
+                productTextIndex.remove(product.getKey());
+                productStatistics.remove(product.getKey());
+            } else {
+                productTextIndex.put(product.getValue());
+                productStatistics.put(product.getValue());
+            }
+        }
+
+        return results;
     }
 
-    public Product updateProduct(Product product, String id) {
-        validateId(id);
-        validatePrice(product.getPrice());
+    private List<ProductBatchResult> writeBatch(Iterator<Product> products, UnaryOperator<Product> prepare,
+                                                Function<List<Product>, List<ProductBatchStatus>> write,
+                                                Map<UUID, Product> written) {
+        List<ProductBatchResult> results = new ArrayList<>();
+        List<Product> chunk = new ArrayList<>(BATCH_CHUNK_SIZE);
+        List<ProductBatchResult> chunkResults = new ArrayList<>(BATCH_CHUNK_SIZE);
+
+        for (int index = 0; products.hasNext(); index++) {
+            if (index == MAX_BATCH_SIZE)
+                throw new InvalidDataException("Batch of more than [%d] products, import it instead", MAX_BATCH_SIZE);
+
+            Product product = products.next();
+            ProductBatchResult result = ProductBatchResult.builder().index(index).build();
+            results.add(result);
+
+            try {
+                if (product == null)
+                    throw new InvalidDataException("Missing product");
 
-        Product productToUpdate = getProductById(id);
+                result.setId(product.getId());
+                result.setVersion(versionOf(product));
 
-        productToUpdate.setPrice(product.getPrice());
-        productToUpdate.setProductName(product.getProductName());
-        productToUpdate.setManufacturer(product.getManufacturer());
+                Product prepared = prepare.apply(product);
+                result.setId(prepared.getId());
+                result.setVersion(versionOf(prepared));
 
-        productRepository.updateProduct(productToUpdate);
-        return getProductById(id);
+                chunk.add(prepared);
+                chunkResults.add(result);
+            } catch (InvalidDataException e) {
+                result.setStatus(ProductBatchStatus.INVALID);
+                result.setMessage(e.getMessage());
+            }
+
+            if (chunk.size() == BATCH_CHUNK_SIZE)
+                writeChunk(chunk, chunkResults, write, written);
+        }
+
+        writeChunk(chunk, chunkResults, write, written);
+        return results;
     }
 
-    public void deleteProduct(String id) {
-        validateId(id);
+    /**
+     * Writes one chunk and records each product's status, and each written product by id as stored, or as null
+     * once deleted.
+     */
+    private void writeChunk(List<Product> chunk, List<ProductBatchResult> chunkResults,
+                            Function<List<Product>, List<ProductBatchStatus>> write, Map<UUID, Product> written) {
+        if (chunk.isEmpty())
+            return;
 
-        Product product = getProductById(id);
+        List<ProductBatchStatus> statuses = write.apply(chunk);
 
-        productRepository.deleteProduct(id, product.getVersion());
+        for (int i = 0; i < statuses.size(); i++) {
+            ProductBatchResult result = chunkResults.get(i);
+            result.setStatus(statuses.get(i));
+
+            if (statuses.get(i) == ProductBatchStatus.UPDATED) {
+                result.setVersion(result.getVersion() + 1);
+                written.put(result.getId(), chunk.get(i).toBuilder().version(result.getVersion()).build());
+            } else if (statuses.get(i) == ProductBatchStatus.CREATED) {
+                written.put(result.getId(), chunk.get(i));
+            } else if (statuses.get(i) == ProductBatchStatus.DELETED) {
+                written.put(result.getId(), null);
+            }
+        }
+
+        chunk.clear();
+        chunkResults.clear();
     }
 
-    public Product getProductById(String id) {
-        validateId(id);
+    private static Long versionOf(Product product) {
+        return product.getVersion() == Product.NO_VERSION ? null : product.getVersion();
+    }
 
-        Product product = productRepository.getProductById(id).orElse(null);
+    private void validateId(UUID id) {
+        if (id == null)
+            throw new InvalidDataException("Invalid product id [%s]", id);
+    }
 
-        if (product == null)
-            throw new EntityNotFoundException(format("Product with id [%s] not found", id));
-        else
-            return product;
+    private void validateLimit(int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE)
+            throw new InvalidDataException("Invalid page limit [%d]", limit);
     }
 
-    public List<Product> getAllProducts() {
-        return productRepository.getAllProducts();
+    private void validateChangeCursor(long since) {
+        if (since < 0)
+            throw new InvalidDataException("Invalid change sequence [%d]", since);
+        if (since < productRepository.getPrunedChangeSequence() || since > productRepository.getReservedChangeSequence())
+            throw new ChangeCursorExpiredException("Changes after sequence [%d] are not available", since);
     }
 
-    private void validateId(String id) {
-        if (id == null || id.isEmpty())
-            throw new InvalidDataException(format("Invalid product id [%s]", id));
+    private void validateVersion(long version) {
+        if (version < 1)
+            throw new InvalidDataException("Invalid product version [%d]", version);
+    }
+
+    private void validateProductDetails(String productName, String manufacturer, Double price) {
+        validateText(productName, "product name");
+        validateText(manufacturer, "manufacturer");
+        validatePrice(price);
     }
 
+    private void validateText(String value, String field) {
+        if (value == null)
+            throw new InvalidDataException("Invalid %s [%s]", field, value);
+    }
+
+    /**
+     * Also rejects NaN, infinite prices and prices whose minor units overflow a long.
+     */
     private void validatePrice(Double price) {
-        if (price == null || price < 0)
-            throw new InvalidDataException(format("Invalid price [%f]", price));
+        if (price == null)
+            throw new InvalidDataException("Invalid price [%f]", price);
+
+        validatePriceBound(price, () -> Product.toMinorUnits(price, RoundingMode.HALF_EVEN));
+    }
+
+    private void validatePriceBound(double price, Supplier<Long> priceMinor) {
+        if (!(price >= 0))
+            throw new InvalidDataException("Invalid price [%f]", price);
+
+        try {
+            priceMinor.get();
+        } catch (ArithmeticException e) {
+            throw new InvalidDataException("Invalid price [%f]", price);
+        }
     }
 }
\ No newline at end of file
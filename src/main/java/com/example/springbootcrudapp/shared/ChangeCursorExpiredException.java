@@ -0,0 +1,7 @@
+package com.example.springbootcrudapp.shared;
+
+public class ChangeCursorExpiredException extends StacklessException {
+    public ChangeCursorExpiredException(String message, Object... arguments) {
+        super(message, arguments);
+    }
+}
@@ -4,4 +4,11 @@ public class DatabaseOperationException extends RuntimeException {
     public DatabaseOperationException(String message) {
         super(message);
     }
+
+    /**
+     * For subclasses that report an expected outcome rather than a failure, without a stack trace.
+     */
+    protected DatabaseOperationException(String message, boolean writableStackTrace) {
+        super(message, null, false, writableStackTrace);
+    }
 }
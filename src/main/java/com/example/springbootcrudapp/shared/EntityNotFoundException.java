@@ -1,7 +1,7 @@
 package com.example.springbootcrudapp.shared;
 
-public class EntityNotFoundException extends RuntimeException {
-    public EntityNotFoundException(String message) {
-        super(message);
+public class EntityNotFoundException extends StacklessException {
+    public EntityNotFoundException(String message, Object... arguments) {
+        super(message, arguments);
     }
 }
@@ -1,7 +1,7 @@
 package com.example.springbootcrudapp.shared;
 
-public class InvalidDataException extends RuntimeException {
-    public InvalidDataException(String message) {
-        super(message);
+public class InvalidDataException extends StacklessException {
+    public InvalidDataException(String message, Object... arguments) {
+        super(message, arguments);
     }
 }
@@ -0,0 +1,24 @@
+package com.example.springbootcrudapp.shared;
+
+import static java.lang.String.format;
+
+/**
+ * Base of the exceptions for bad requests and expected outcomes, which are thrown often and always handled.
+ * They capture no stack trace, and a message given as a format and its arguments is only formatted when read.
+ */
+public abstract class StacklessException extends RuntimeException {
+    private final Object[] arguments;
+
+    protected StacklessException(String message, Object... arguments) {
+        super(message, null, false, false);
+        this.arguments = arguments;
+    }
+
+    @Override
+    public String getMessage() {
+        if (arguments.length == 0)
+            return super.getMessage();
+
+        return format(super.getMessage(), arguments);
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.springbootcrudapp.shared;
+
+public class VersionConflictException extends DatabaseOperationException {
+    public VersionConflictException(String message) {
+        super(message, false);
+    }
+}
@@ -0,0 +1,377 @@
+package com.example.springbootcrudapp.stats;
+
+import com.example.springbootcrudapp.model.Product;
+import com.example.springbootcrudapp.model.ProductStats;
+import com.example.springbootcrudapp.repository.ProductRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Count and price statistics of the catalog, overall and per manufacturer, kept up to date by every write so
+ * that reading them takes no query. Each product's version, manufacturer group and price are remembered, so an
+ * update or delete takes out exactly what the product added and a write older than the remembered version is
+ * ignored, and prices are counted in sorted order, so the minimum and maximum survive removing the cheapest or
+ * dearest product.
+ * <p>
+ * Remembering the products costs about {@value #PRODUCT_BYTES} bytes each, and twice that while a rebuild
+ * builds the replacement; {@link #estimatedBytes()} is published as {@code product.stats.memory}.
+ * <p>
+ * Writes are applied once committed, but a write that lost its race with a delete, or one made by another
+ * process, still leaves them off, so the statistics are periodically reconciled with a {@code GROUP BY} over
+ * the products table and rebuilt from it when they differ. A rebuild replays the writes made while it scanned the table, so it never has to wait for
+ * writes to pause; a reconciliation cannot, and after {@value #MAX_BUSY_ROUNDS} in a row that saw writes
+ * rebuilds regardless. Reads share a read lock, writes take the write lock.
+ */
+@Slf4j
+public class ProductStatistics implements Closeable {
+    private static final int MAX_BUSY_ROUNDS = 3;
+    /**
+     * A hash map node and its table slot, the UUID key and the {@link Entry}, with compressed oops.
+     */
+    private static final int PRODUCT_BYTES = 32 + 8 + 32 + 40;
+    /**
+     * A tree map entry with its boxed price and count.
+     */
+    private static final int PRICE_BYTES = 40 + 16 + 16;
+    /**
+     * A hash map node, the {@link Aggregate} with its tree map, and the manufacturer string less its characters.
+     */
+    private static final int GROUP_BYTES = 32 + 40 + 48 + 40;
+
+    private final ProductRepository productRepository;
+    private final Duration reconcileInterval;
+    private final ScheduledExecutorService scheduler;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Statistics statistics = new Statistics();
+    private long writes;
+    private List<Consumer<Statistics>> replay;
+    private int busyRounds;
+
+    private final Counter current;
+    private final Counter rebuilt;
+    private final Counter busy;
+
+    public ProductStatistics(ProductRepository productRepository, Duration reconcileInterval,
+                             MeterRegistry meterRegistry) {
+        this.productRepository = productRepository;
+        this.reconcileInterval = reconcileInterval;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "product-stats");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.current = meterRegistry.counter("product.stats.reconciliations", "result", "current");
+        this.rebuilt = meterRegistry.counter("product.stats.reconciliations", "result", "rebuilt");
+        this.busy = meterRegistry.counter("product.stats.reconciliations", "result", "busy");
+
+        Gauge.builder("product.stats.memory", this, ProductStatistics::estimatedBytes)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Builds the statistics from the products table and starts reconciling them.
+     */
+    public void start() {
+        long start = System.nanoTime();
+        rebuild();
+
+        log.info("Computed statistics of {} products in {} ms", getStats().getCount(),
+                (System.nanoTime() - start) / 1_000_000);
+
+        long intervalMillis = reconcileInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::reconcile, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void put(Product product) {
+        lock.writeLock().lock();
+
+        try {
+            statistics.put(product);
+            writes++;
+
+            if (replay != null) {
+                Product written = product.toBuilder().build();
+                replay.add(computed -> computed.put(written));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(UUID productId) {
+        lock.writeLock().lock();
+
+        try {
+            statistics.remove(productId);
+            writes++;
+
+            if (replay != null)
+                replay.add(computed -> computed.remove(productId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public ProductStats getStats() {
+        lock.readLock().lock();
+
+        try {
+            return statistics.total.toStats(null);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Optional<ProductStats> getStats(String manufacturer) {
+        lock.readLock().lock();
+
+        try {
+            return Optional.ofNullable(statistics.byManufacturer.get(manufacturer))
+                    .map(aggregate -> aggregate.toStats(manufacturer));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * One entry per manufacturer, ordered by manufacturer.
+     */
+    public List<ProductStats> getStatsByManufacturer() {
+        List<ProductStats> stats = new ArrayList<>();
+        lock.readLock().lock();
+
+        try {
+            for (Map.Entry<String, Aggregate> group : statistics.byManufacturer.entrySet())
+                stats.add(group.getValue().toStats(group.getKey()));
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        stats.sort((a, b) -> a.getManufacturer().compareTo(b.getManufacturer()));
+        return stats;
+    }
+
+    /**
+     * An estimate of the heap held by the statistics, not counting a rebuild in progress.
+     */
+    public long estimatedBytes() {
+        lock.readLock().lock();
+
+        try {
+            long bytes = (long) PRODUCT_BYTES * statistics.products.size();
+
+            for (Map.Entry<String, Aggregate> group : statistics.byManufacturer.entrySet())
+                bytes += GROUP_BYTES + group.getKey().length() + (long) PRICE_BYTES * group.getValue().prices.size();
+
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Compares the statistics with the database and rebuilds them when they differ. Gives up until the next
+     * time when there were writes meanwhile, since the comparison could not tell them from drift, unless that
+     * was the case the last {@value #MAX_BUSY_ROUNDS} times, and then rebuilds. Returns whether the statistics
+     * were current.
+     */
+    public synchronized boolean reconcile() {
+        try {
+            long before = writes();
+            Map<String, ProductStats> expected = byManufacturer(productRepository.getStatsByManufacturer());
+            Map<String, ProductStats> actual = byManufacturer(getStatsByManufacturer());
+
+            if (writes() != before) {
+                busy.increment();
+
+                if (++busyRounds < MAX_BUSY_ROUNDS)
+                    return false;
+
+                log.info("Product statistics could not be compared for {} rounds of writes, rebuilding them",
+                        busyRounds);
+                rebuild();
+                return false;
+            }
+
+            busyRounds = 0;
+
+            if (expected.equals(actual)) {
+                current.increment();
+                return true;
+            }
+
+            log.warn("Product statistics differ from the products table, rebuilding them");
+            rebuild();
+            return false;
+        } catch (RuntimeException e) {
+            log.warn("Could not reconcile the product statistics", e);
+            return false;
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Recomputes the statistics from every product and replaces them. Writes made during the scan may or may
+     * not show in it, so they are recorded and replayed onto the result, which leaves each product as its last
+     * write has it either way.
+     */
+    private synchronized void rebuild() {
+        Statistics computed = new Statistics();
+        setReplay(new ArrayList<>());
+
+        try {
+            productRepository.forEachProduct(null, computed::put);
+        } catch (RuntimeException e) {
+            setReplay(null);
+            throw e;
+        }
+
+        lock.writeLock().lock();
+
+        try {
+            for (Consumer<Statistics> write : replay)
+                write.accept(computed);
+
+            statistics = computed;
+            replay = null;
+            busyRounds = 0;
+            rebuilt.increment();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void setReplay(List<Consumer<Statistics>> writes) {
+        lock.writeLock().lock();
+
+        try {
+            replay = writes;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private long writes() {
+        lock.readLock().lock();
+
+        try {
+            return writes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static Map<String, ProductStats> byManufacturer(Collection<ProductStats> stats) {
+        return stats.stream().collect(Collectors.toMap(ProductStats::getManufacturer, Function.identity()));
+    }
+
+    private static final class Statistics {
+        private final Map<UUID, Entry> products = new HashMap<>();
+        private final Map<String, Aggregate> byManufacturer = new HashMap<>();
+        private final Aggregate total = new Aggregate(null);
+
+        void put(Product product) {
+            Entry stored = products.get(product.getId());
+            if (stored != null && stored.version > product.getVersion())
+                return;
+
+            remove(product.getId());
+
+            Aggregate group = byManufacturer.computeIfAbsent(product.getManufacturer(), Aggregate::new);
+            group.add(product.getPriceMinor());
+            total.add(product.getPriceMinor());
+
+            products.put(product.getId(), new Entry(product.getVersion(), group, product.getPriceMinor()));
+        }
+
+        void remove(UUID productId) {
+            Entry entry = products.remove(productId);
+
+            if (entry == null)
+                return;
+
+            entry.group.remove(entry.priceMinor);
+            total.remove(entry.priceMinor);
+
+            if (entry.group.count == 0)
+                byManufacturer.remove(entry.group.manufacturer);
+        }
+    }
+
+    /**
+     * Refers to the product's group rather than to its manufacturer, so that products share one manufacturer
+     * string per group.
+     */
+    private static final class Entry {
+        private final long version;
+        private final Aggregate group;
+        private final long priceMinor;
+
+        Entry(long version, Aggregate group, long priceMinor) {
+            this.version = version;
+            this.group = group;
+            this.priceMinor = priceMinor;
+        }
+    }
+
+    private static final class Aggregate {
+        private final String manufacturer;
+        private final TreeMap<Long, Integer> prices = new TreeMap<>();
+        private long count;
+        private long totalPriceMinor;
+
+        Aggregate(String manufacturer) {
+            this.manufacturer = manufacturer;
+        }
+
+        void add(long priceMinor) {
+            count++;
+            totalPriceMinor += priceMinor;
+            prices.merge(priceMinor, 1, Integer::sum);
+        }
+
+        void remove(long priceMinor) {
+            count--;
+            totalPriceMinor -= priceMinor;
+            prices.computeIfPresent(priceMinor, (price, products) -> products == 1 ? null : products - 1);
+        }
+
+        ProductStats toStats(String manufacturer) {
+            return ProductStats.builder()
+                    .manufacturer(manufacturer)
+                    .count(count)
+                    .totalPriceMinor(totalPriceMinor)
+                    .minPriceMinor(count == 0 ? 0 : prices.firstKey())
+                    .maxPriceMinor(count == 0 ? 0 : prices.lastKey())
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.springbootcrudapp.writebehind;
+
+import com.example.springbootcrudapp.model.Product;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of accepted write-behind updates, split into numbered segments. Each record is its length,
+ * a CRC32 and the product, and is forced to disk before {@link #append} returns when {@code sync} is set.
+ * Segments are deleted once every update in them is stored; whatever is left is read back by
+ * {@link #recover} after a crash, up to the first torn or corrupt record. Not thread-safe.
+ */
+@Slf4j
+public class ProductUpdateJournal implements Closeable {
+    private static final String SEGMENT_PREFIX = "updates-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    /**
+     * Four longs plus two strings of at most 65535 encoded bytes, each with its length.
+     */
+    private static final int MAX_RECORD_BYTES = 4 * 8 + 2 * (2 + 65535);
+
+    private final Path directory;
+    private final boolean sync;
+    private long segment;
+    private FileChannel channel;
+
+    public ProductUpdateJournal(Path directory, boolean sync) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.sync = sync;
+
+        List<Long> segments = segments();
+        this.segment = segments.isEmpty() ? 0 : segments.get(segments.size() - 1) + 1;
+        this.channel = open(segment);
+    }
+
+    /**
+     * Reads the updates of every segment before the current one, oldest first.
+     */
+    public List<Product> recover() throws IOException {
+        List<Product> products = new ArrayList<>();
+
+        for (long recovered : segments()) {
+            if (recovered < segment)
+                read(segmentPath(recovered), products);
+        }
+
+        return products;
+    }
+
+    public void append(Product product) throws IOException {
+        byte[] payload = encode(product);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        ByteBuffer record = ByteBuffer.allocate(8 + payload.length)
+                .putInt(payload.length)
+                .putInt((int) crc.getValue())
+                .put(payload)
+                .flip();
+
+        while (record.hasRemaining())
+            channel.write(record);
+
+        if (sync)
+            channel.force(false);
+    }
+
+    /**
+     * Starts a new segment and returns the one just closed, to be passed to {@link #deleteThrough} once its
+     * updates are stored.
+     */
+    public long rotate() throws IOException {
+        channel.close();
+        channel = open(segment + 1);
+        return segment++;
+    }
+
+    public void deleteThrough(long lastSegment) throws IOException {
+        for (long stored : segments())
+            if (stored <= lastSegment)
+                Files.deleteIfExists(segmentPath(stored));
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private FileChannel open(long number) throws IOException {
+        return FileChannel.open(segmentPath(number), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    private Path segmentPath(long number) {
+        return directory.resolve(SEGMENT_PREFIX + number + SEGMENT_SUFFIX);
+    }
+
+    private List<Long> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static void read(Path path, List<Product> products) throws IOException {
+        try (InputStream file = Files.newInputStream(path);
+             DataInputStream input = new DataInputStream(new BufferedInputStream(file))) {
+            while (true) {
+                byte[] payload;
+                int checksum;
+
+                try {
+                    int length = input.readInt();
+
+                    if (length < 0 || length > MAX_RECORD_BYTES) {
+                        log.warn("Stopped reading write-behind journal {} at a corrupt record", path);
+                        return;
+                    }
+
+                    payload = new byte[length];
+                    checksum = input.readInt();
+                    input.readFully(payload);
+                } catch (EOFException e) {
+                    return;
+                }
+
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+
+                if ((int) crc.getValue() != checksum) {
+                    log.warn("Stopped reading write-behind journal {} at a corrupt record", path);
+                    return;
+                }
+
+                products.add(decode(payload));
+            }
+        }
+    }
+
+    private static byte[] encode(Product product) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(96);
+
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeLong(product.getId().getMostSignificantBits());
+            output.writeLong(product.getId().getLeastSignificantBits());
+            output.writeLong(product.getVersion());
+            output.writeUTF(product.getProductName());
+            output.writeUTF(product.getManufacturer());
+            output.writeLong(product.getPriceMinor());
+        }
+
+        return bytes.toByteArray();
+    }
+
+    private static Product decode(byte[] payload) throws IOException {
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(payload))) {
+            return Product.builder()
+                    .id(new UUID(input.readLong(), input.readLong()))
+                    .version(input.readLong())
+                    .productName(input.readUTF())
+                    .manufacturer(input.readUTF())
+                    .priceMinor(input.readLong())
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.example.springbootcrudapp.writebehind;
+
+import com.example.springbootcrudapp.model.Product;
+import com.example.springbootcrudapp.model.ProductBatchStatus;
+import com.example.springbootcrudapp.repository.ProductRepository;
+import com.example.springbootcrudapp.search.ProductTextIndex;
+import com.example.springbootcrudapp.stats.ProductStatistics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces product updates per id and writes them behind the request, as one JDBC batch per flush interval.
+ * An update is journaled before {@link #offer} accepts it, so accepted updates survive a crash and are
+ * replayed on the next start. Each product's latest update wins; it is applied at the version it carries, or
+ * unconditionally without one, and updates that lost the optimistic lock by then are counted and dropped.
+ */
+@Slf4j
+public class ProductWriteBehindQueue implements Closeable {
+    private static final int FLUSH_CHUNK_SIZE = 1000;
+
+    private final ProductRepository productRepository;
+    private final ProductTextIndex productTextIndex;
+    private final ProductStatistics productStatistics;
+    private final ProductUpdateJournal journal;
+    private final int maxPendingUpdates;
+    private final Duration flushInterval;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "product-write-behind");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Object lock = new Object();
+    private Map<UUID, Product> pending = new LinkedHashMap<>();
+    private long writtenSegment = -1;
+    private boolean closed;
+
+    private final Counter accepted;
+    private final Map<ProductBatchStatus, Counter> written = new EnumMap<>(ProductBatchStatus.class);
+    private final Counter flushFailures;
+    private final Timer flushTimer;
+
+    public ProductWriteBehindQueue(ProductRepository productRepository, ProductTextIndex productTextIndex,
+                                   ProductStatistics productStatistics, ProductUpdateJournal journal,
+                                   int maxPendingUpdates, Duration flushInterval, MeterRegistry meterRegistry)
+            throws IOException {
+        this.productRepository = productRepository;
+        this.productTextIndex = productTextIndex;
+        this.productStatistics = productStatistics;
+        this.journal = journal;
+        this.maxPendingUpdates = maxPendingUpdates;
+        this.flushInterval = flushInterval;
+
+        for (Product product : journal.recover())
+            pending.put(product.getId(), product);
+
+        if (!pending.isEmpty())
+            log.info("Recovered {} unwritten product updates from the write-behind journal", pending.size());
+
+        this.accepted = meterRegistry.counter("product.write-behind.accepted");
+        for (ProductBatchStatus status : List.of(ProductBatchStatus.UPDATED, ProductBatchStatus.CONFLICT, ProductBatchStatus.NOT_FOUND))
+            written.put(status, meterRegistry.counter("product.write-behind.written", "status", status.name().toLowerCase()));
+        this.flushFailures = meterRegistry.counter("product.write-behind.flush.failures");
+        this.flushTimer = Timer.builder("product.write-behind.flush").register(meterRegistry);
+
+        Gauge.builder("product.write-behind.pending", this, ProductWriteBehindQueue::pendingUpdates)
+                .register(meterRegistry);
+        Gauge.builder("product.write-behind.coalescing.ratio", this, ProductWriteBehindQueue::coalescingRatio)
+                .description("Accepted updates per row written")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts flushing; recovered updates go out with the first flush.
+     */
+    public void start() {
+        long intervalNanos = flushInterval.toNanos();
+        scheduler.scheduleWithFixedDelay(this::flush, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Journals and queues the update, or returns false when the queue is closed, full, or cannot journal it;
+     * the caller then has to apply the update itself.
+     */
+    public boolean offer(Product product) {
+        synchronized (lock) {
+            if (closed || pending.size() >= maxPendingUpdates && !pending.containsKey(product.getId()))
+                return false;
+
+            try {
+                journal.append(product);
+            } catch (IOException e) {
+                log.warn("Could not journal the update of product {}", product.getId(), e);
+                return false;
+            }
+
+            pending.put(product.getId(), product);
+        }
+
+        accepted.increment();
+        return true;
+    }
+
+    public int pendingUpdates() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * Writes every pending update. A failed batch is queued again behind any newer update of the same products.
+     * Journal segments of a committed batch are only deleted by the next flush, which gives a file-backed
+     * database that writes commits with a delay at least one flush interval to store them.
+     */
+    public void flush() {
+        Map<UUID, Product> batch;
+        long segment;
+
+        synchronized (lock) {
+            deleteWrittenSegments();
+
+            if (pending.isEmpty())
+                return;
+
+            try {
+                segment = journal.rotate();
+            } catch (IOException e) {
+                flushFailures.increment();
+                log.warn("Could not rotate the write-behind journal", e);
+                return;
+            }
+
+            batch = pending;
+            pending = new LinkedHashMap<>();
+        }
+
+        try {
+            flushTimer.record(() -> write(new ArrayList<>(batch.values())));
+        } catch (RuntimeException e) {
+            flushFailures.increment();
+            log.warn("Could not write {} product updates, retrying with the next flush", batch.size(), e);
+
+            synchronized (lock) {
+                batch.forEach(pending::putIfAbsent);
+            }
+
+            return;
+        }
+
+        synchronized (lock) {
+            writtenSegment = segment;
+        }
+    }
+
+    /**
+     * Stops the scheduler and writes whatever is still pending.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            closed = true;
+        }
+
+        scheduler.shutdown();
+
+        try {
+            scheduler.awaitTermination(flushInterval.toMillis() + 10_000, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        flush();
+
+        synchronized (lock) {
+            deleteWrittenSegments();
+            journal.close();
+        }
+    }
+
+    private void deleteWrittenSegments() {
+        if (writtenSegment < 0)
+            return;
+
+        try {
+            journal.deleteThrough(writtenSegment);
+            writtenSegment = -1;
+        } catch (IOException e) {
+            log.warn("Could not delete written write-behind journal segments", e);
+        }
+    }
+
+    /**
+     * Writes the products in one transaction, and has the text index and the statistics follow them once it
+     * has committed. Updates made regardless of version are read back for the version they were stored at.
+     */
+    private void write(List<Product> products) {
+        List<Product> versioned = new ArrayList<>();
+        List<Product> unversioned = new ArrayList<>();
+
+        for (Product product : products)
+            (product.getVersion() == Product.NO_VERSION ? unversioned : versioned).add(product);
+
+        List<Product> updated = new ArrayList<>();
+        List<UUID> updatedIds = new ArrayList<>();
+
+        productRepository.inBatch(writer -> {
+            for (int from = 0; from < versioned.size(); from += FLUSH_CHUNK_SIZE) {
+                List<Product> chunk = versioned.subList(from, Math.min(from + FLUSH_CHUNK_SIZE, versioned.size()));
+                List<ProductBatchStatus> statuses = record(writer.updateProducts(chunk));
+
+                for (int i = 0; i < statuses.size(); i++)
+                    if (statuses.get(i) == ProductBatchStatus.UPDATED)
+                        updated.add(chunk.get(i).toBuilder().version(chunk.get(i).getVersion() + 1).build());
+            }
+
+            for (int from = 0; from < unversioned.size(); from += FLUSH_CHUNK_SIZE) {
+                List<Product> chunk = unversioned.subList(from, Math.min(from + FLUSH_CHUNK_SIZE, unversioned.size()));
+                List<ProductBatchStatus> statuses = record(writer.updateProductsIgnoringVersion(chunk));
+
+                for (int i = 0; i < statuses.size(); i++)
+                    if (statuses.get(i) == ProductBatchStatus.UPDATED)
+                        updatedIds.add(chunk.get(i).getId());
+            }
+
+            return null;
+        });
+
+        for (int from = 0; from < updatedIds.size(); from += FLUSH_CHUNK_SIZE) {
+            List<UUID> chunk = updatedIds.subList(from, Math.min(from + FLUSH_CHUNK_SIZE, updatedIds.size()));
+            updated.addAll(productRepository.getProductsByIds(chunk));
+        }
+
+        for (Product product : updated) {
+            productTextIndex.put(product);
+            productStatistics.put(product);
+        }
+    }
+
+    private List<ProductBatchStatus> record(List<ProductBatchStatus> statuses) {
+        for (ProductBatchStatus status : statuses)
+            written.get(status).increment();
+
+        return statuses;
+    }
+
+    private double coalescingRatio() {
+        double writtenRows = written.values().stream().mapToDouble(Counter::count).sum();
+        return writtenRows == 0 ? 0 : accepted.count() / writtenRows;
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.springbootcrudapp;
+
+import com.example.springbootcrudapp.controller.AdmissionControlFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import java.time.Duration;
+
+public class AdmissionControlFilterTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    public void testRequestWithinLimitIsAdmitted() throws Exception {
+        AdmissionControlFilter filter = new AdmissionControlFilter(1, 0, Duration.ZERO, meterRegistry);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/products"), response, new MockFilterChain());
+        filter.doFilter(new MockHttpServletRequest("GET", "/products"), response, new MockFilterChain());
+
+        Assert.assertEquals(200, response.getStatus());
+        Assert.assertEquals(0, meterRegistry.get("product.requests.rejected").counter().count(), 0);
+    }
+
+    @Test
+    public void testRequestOverLimitIsRejectedWhenQueueIsFull() throws Exception {
+        AdmissionControlFilter filter = new AdmissionControlFilter(1, 0, Duration.ofSeconds(1), meterRegistry);
+        MockHttpServletResponse nested = new MockHttpServletResponse();
+
+        FilterChain holdingChain = (request, response) -> {
+            Assert.assertEquals(1, meterRegistry.get("product.requests.active").gauge().value(), 0);
+            filter.doFilter(new MockHttpServletRequest("GET", "/products"), nested, new MockFilterChain());
+        };
+        filter.doFilter(new MockHttpServletRequest("GET", "/products"), new MockHttpServletResponse(), holdingChain);
+
+        Assert.assertEquals(429, nested.getStatus());
+        Assert.assertEquals("1", nested.getHeader(HttpHeaders.RETRY_AFTER));
+        Assert.assertEquals(1, meterRegistry.get("product.requests.rejected").counter().count(), 0);
+        Assert.assertEquals(0, meterRegistry.get("product.requests.active").gauge().value(), 0);
+    }
+
+    @Test
+    public void testQueuedRequestIsRejectedAfterTimeout() throws Exception {
+        AdmissionControlFilter filter = new AdmissionControlFilter(1, 1, Duration.ofMillis(10), meterRegistry);
+        MockHttpServletResponse nested = new MockHttpServletResponse();
+
+        FilterChain holdingChain = (request, response) ->
+                filter.doFilter(new MockHttpServletRequest("GET", "/products"), nested, new MockFilterChain());
+        filter.doFilter(new MockHttpServletRequest("GET", "/products"), new MockHttpServletResponse(), holdingChain);
+
+        Assert.assertEquals(429, nested.getStatus());
+        Assert.assertEquals(0, meterRegistry.get("product.requests.queued").gauge().value(), 0);
+    }
+
+    @Test
+    public void testAsyncRequestKeepsPermitUntilComplete() throws Exception {
+        AdmissionControlFilter filter = new AdmissionControlFilter(1, 0, Duration.ZERO, meterRegistry);
+        MockHttpServletRequest streaming = new MockHttpServletRequest("GET", "/products");
+        streaming.setAsyncSupported(true);
+
+        filter.doFilter(streaming, new MockHttpServletResponse(), (request, response) -> request.startAsync());
+        Assert.assertEquals(1, meterRegistry.get("product.requests.active").gauge().value(), 0);
+
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/products"), rejected, new MockFilterChain());
+        Assert.assertEquals(429, rejected.getStatus());
+
+        MockAsyncContext asyncContext = (MockAsyncContext) streaming.getAsyncContext();
+        for (AsyncListener listener : asyncContext.getListeners())
+            listener.onTimeout(new AsyncEvent(asyncContext));
+        asyncContext.complete();
+
+        Assert.assertEquals(0, meterRegistry.get("product.requests.active").gauge().value(), 0);
+
+        MockHttpServletResponse admitted = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/products"), admitted, new MockFilterChain());
+        Assert.assertEquals(200, admitted.getStatus());
+        Assert.assertEquals(0, meterRegistry.get("product.requests.active").gauge().value(), 0);
+    }
+
+    @Test
+    public void testDeferredResultKeepsPermitUntilAnswered() throws Exception {
+        AdmissionControlFilter filter = new AdmissionControlFilter(1, 0, Duration.ZERO, meterRegistry);
+        LongPoll longPoll = new LongPoll();
+        MockMvc mvc = MockMvcBuilders.standaloneSetup(longPoll).addFilters(filter).build();
+
+        MvcResult poll = mvc.perform(MockMvcRequestBuilders.get("/products/poll")).andReturn();
+        Assert.assertTrue(poll.getRequest().isAsyncStarted());
+        Assert.assertEquals(429, mvc.perform(MockMvcRequestBuilders.get("/products/poll"))
+                .andReturn().getResponse().getStatus());
+
+        longPoll.result.setResult("answered");
+        Assert.assertEquals("answered", mvc.perform(MockMvcRequestBuilders.asyncDispatch(poll))
+                .andReturn().getResponse().getContentAsString());
+        Assert.assertEquals(0, meterRegistry.get("product.requests.active").gauge().value(), 0);
+    }
+
+    @RestController
+    private static class LongPoll {
+        private DeferredResult<String> result;
+
+        @GetMapping("/products/poll")
+        public DeferredResult<String> poll() {
+            result = new DeferredResult<>();
+            return result;
+        }
+    }
+}
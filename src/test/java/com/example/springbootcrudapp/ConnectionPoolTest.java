@@ -0,0 +1,55 @@
+package com.example.springbootcrudapp;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.jdbi.v3.core.Jdbi;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:connection-pool-test",
+        "product.datasource.pool.minimum-idle=1",
+        "product.datasource.pool.prepared-statement-cache-size=100"
+})
+public class ConnectionPoolTest {
+    @Autowired
+    private HikariDataSource dataSource;
+
+    @Autowired
+    private Jdbi jdbi;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    public void testPoolIsSizedFromCoresAndProperties() {
+        Assert.assertEquals(Runtime.getRuntime().availableProcessors() * 2 + 1, dataSource.getMaximumPoolSize());
+        Assert.assertEquals(1, dataSource.getMinimumIdle());
+        Assert.assertEquals(30_000, dataSource.getLeakDetectionThreshold());
+    }
+
+    @Test
+    public void testPreparedStatementCacheSizeReachesTheDatabase() {
+        String cacheSize = jdbi.withHandle(handle -> handle
+                .createQuery("SELECT VALUE FROM INFORMATION_SCHEMA.SETTINGS WHERE NAME = 'QUERY_CACHE_SIZE'")
+                .mapTo(String.class)
+                .one());
+
+        Assert.assertEquals("100", cacheSize);
+    }
+
+    @Test
+    public void testPoolMetricsAreRegistered() {
+        jdbi.useHandle(handle -> handle.execute("SELECT 1"));
+
+        Assert.assertNotNull(meterRegistry.find("hikaricp.connections.pending").tag("pool", "products").gauge());
+        Assert.assertTrue(meterRegistry.get("hikaricp.connections.acquire").tag("pool", "products").timer().count() > 0);
+    }
+}
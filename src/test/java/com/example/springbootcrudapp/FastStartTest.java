@@ -0,0 +1,68 @@
+package com.example.springbootcrudapp;
+
+import com.example.springbootcrudapp.model.Product;
+import com.example.springbootcrudapp.schema.ChecksumSkippingLiquibase;
+import com.example.springbootcrudapp.service.ProductService;
+import liquibase.integration.spring.SpringLiquibase;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.UUID;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles("fast-start")
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:fast-start-test")
+public class FastStartTest {
+    private static final String CHANGE_LOG = "classpath:/db/changelog/db.changelog-master.yaml";
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private SpringLiquibase liquibase;
+
+    @Test
+    public void testLazyContextMigratesAndServes() {
+        Product product = productService.createProduct("Galaxy Phone", "Samsung", 799.0);
+
+        Assert.assertEquals(product, productService.getProductById(product.getId()));
+        Assert.assertTrue(liquibase instanceof ChecksumSkippingLiquibase);
+        Assert.assertTrue(((ChecksumSkippingLiquibase) liquibase).isCurrent());
+    }
+
+    @Test
+    public void testCurrentSchemaSkipsLiquibase() throws Exception {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:checksum-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "sa");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+        createLiquibase(dataSource, null).afterPropertiesSet();
+        jdbcTemplate.execute("DROP TABLE DATABASECHANGELOG");
+
+        // Liquibase would recreate its table and fail on the existing products table
+        createLiquibase(dataSource, null).afterPropertiesSet();
+
+        Assert.assertEquals(0, (int) jdbcTemplate.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES" +
+                " WHERE TABLE_NAME = 'DATABASECHANGELOG'", Integer.class));
+        Assert.assertFalse(createLiquibase(dataSource, "other").isCurrent());
+    }
+
+    private static ChecksumSkippingLiquibase createLiquibase(DriverManagerDataSource dataSource, String contexts) {
+        ChecksumSkippingLiquibase liquibase = new ChecksumSkippingLiquibase();
+        liquibase.setDataSource(dataSource);
+        liquibase.setChangeLog(CHANGE_LOG);
+        liquibase.setContexts(contexts);
+        liquibase.setResourceLoader(new DefaultResourceLoader());
+        return liquibase;
+    }
+}
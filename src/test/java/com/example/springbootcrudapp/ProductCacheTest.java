@@ -0,0 +1,145 @@
+package com.example.springbootcrudapp;
+
+import com.example.springbootcrudapp.cache.ProductCache;
+import com.example.springbootcrudapp.model.Product;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ProductCacheTest {
+    private final ProductCache productCache = new ProductCache(100, Duration.ofMinutes(1));
+
+    @Test
+    public void testReadThroughLoadsOnce() {
+        Product product = createProduct(1L, 100.50);
+        AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            Optional<Product> cached = productCache.get(product.getId(), id -> {
+                loads.incrementAndGet();
+                return Optional.of(product);
+            });
+
+            Assert.assertEquals(product, cached.orElseThrow());
+        }
+
+        Assert.assertEquals(1, loads.get());
+        Assert.assertEquals(2, productCache.stats().hitCount());
+        Assert.assertEquals(1, productCache.stats().missCount());
+    }
+
+    @Test
+    public void testNotFoundIsNotCached() {
+        UUID id = UUID.randomUUID();
+        AtomicInteger loads = new AtomicInteger();
+
+        productCache.get(id, key -> {
+            loads.incrementAndGet();
+            return Optional.empty();
+        });
+        productCache.get(id, key -> {
+            loads.incrementAndGet();
+            return Optional.empty();
+        });
+
+        Assert.assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testOlderVersionDoesNotReplaceNewerVersion() {
+        Product newer = createProduct(2L, 90.50);
+        Product older = newer.toBuilder().version(1L).price(100.50).build();
+
+        productCache.put(newer);
+        productCache.put(older);
+
+        Product cached = productCache.get(newer.getId(), id -> Optional.empty()).orElseThrow();
+        Assert.assertEquals(2, (long) cached.getVersion());
+        Assert.assertEquals(newer.getPrice(), cached.getPrice());
+    }
+
+    @Test
+    public void testCachedProductsAreCopies() {
+        Product product = createProduct(1L, 100.50);
+        productCache.put(product);
+
+        product.setPrice(1.0);
+        productCache.get(product.getId(), id -> Optional.empty()).orElseThrow().setPrice(2.0);
+
+        Product cached = productCache.get(product.getId(), id -> Optional.empty()).orElseThrow();
+        Assert.assertEquals(100.50, cached.getPrice(), 0);
+    }
+
+    @Test
+    public void testInvalidate() {
+        Product product = createProduct(1L, 100.50);
+        productCache.put(product);
+        productCache.invalidate(product.getId());
+
+        Assert.assertFalse(productCache.get(product.getId(), id -> Optional.empty()).isPresent());
+    }
+
+    @Test
+    public void testMissRacingDeleteDoesNotCacheDeletedProduct() throws Exception {
+        Product product = createProduct(1L, 100.50);
+
+        Assert.assertEquals(product, raceMissAgainst(product, () -> productCache.invalidate(product.getId())));
+        Assert.assertFalse(productCache.get(product.getId(), id -> Optional.empty()).isPresent());
+
+        Assert.assertEquals(product, raceMissAgainst(product, productCache::invalidateAll));
+        Assert.assertFalse(productCache.get(product.getId(), id -> Optional.empty()).isPresent());
+    }
+
+    /**
+     * Misses on the product in another thread and runs the invalidation after the load read the product but
+     * before it returned, the way a delete lands in between.
+     */
+    private Product raceMissAgainst(Product product, Runnable invalidation) throws Exception {
+        CountDownLatch loaded = new CountDownLatch(1);
+        CountDownLatch invalidated = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            Future<Optional<Product>> miss = executor.submit(() -> productCache.get(product.getId(), id -> {
+                loaded.countDown();
+                awaitUninterruptibly(invalidated);
+                return Optional.of(product);
+            }));
+
+            Assert.assertTrue(loaded.await(10, TimeUnit.SECONDS));
+            invalidation.run();
+            invalidated.countDown();
+
+            return miss.get(10, TimeUnit.SECONDS).orElseThrow();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Product createProduct(Long version, Double price) {
+        return Product.builder()
+                .id(UUID.randomUUID())
+                .version(version)
+                .productName("testProduct")
+                .manufacturer("testManufacturer")
+                .price(price)
+                .build();
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.springbootcrudapp;
+
+import com.example.springbootcrudapp.metrics.TimedSqlLogger;
+import com.example.springbootcrudapp.model.Product;
+import com.example.springbootcrudapp.model.ProductChange;
+import com.example.springbootcrudapp.model.ProductChangeType;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:product-changes-test",
+        "product.changes.long-poll-timeout=5s"
+})
+public class ProductChangesTest {
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    public void testEveryWriteIsLoggedInOrder() throws Exception {
+        Product product = createProduct();
+
+        mvc.perform(MockMvcRequestBuilders
+                .put("/products/" + product.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(product.toBuilder().price(99.99).build()))).andReturn();
+        mvc.perform(MockMvcRequestBuilders.delete("/products/" + product.getId())).andReturn();
+
+        MvcResult poll = mvc.perform(MockMvcRequestBuilders.get("/products/changes?since=0")).andReturn();
+        MockHttpServletResponse response = mvc.perform(MockMvcRequestBuilders.asyncDispatch(poll)).andReturn().getResponse();
+        List<ProductChange> changes = mapper.readValue(response.getContentAsString(), new TypeReference<>() {});
+
+        Assert.assertEquals(List.of(ProductChangeType.CREATED, ProductChangeType.UPDATED, ProductChangeType.DELETED),
+                changes.stream().map(ProductChange::getType).collect(Collectors.toList()));
+        Assert.assertEquals(List.of(1L, 2L, 3L), changes.stream().map(ProductChange::getSequence).collect(Collectors.toList()));
+        Assert.assertEquals(2, (long) changes.get(1).getVersion());
+        Assert.assertEquals(99.99, changes.get(1).getProduct().getPrice(), 0);
+        Assert.assertNull(changes.get(2).getProduct());
+        Assert.assertTrue(response.getHeader(HttpHeaders.LINK).contains("since=3"));
+    }
+
+    @Test
+    public void testLongPollAnswersWithTheNextChange() throws Exception {
+        MvcResult poll = mvc.perform(MockMvcRequestBuilders.get("/products/changes?since=0")).andReturn();
+        Assert.assertTrue(poll.getRequest().isAsyncStarted());
+
+        Product product = createProduct();
+
+        MockHttpServletResponse response = mvc.perform(MockMvcRequestBuilders.asyncDispatch(poll)).andReturn().getResponse();
+        List<ProductChange> changes = mapper.readValue(response.getContentAsString(), new TypeReference<>() {});
+
+        Assert.assertEquals(1, changes.size());
+        Assert.assertEquals(product.getId(), changes.get(0).getId());
+    }
+
+    @Test
+    public void testTimedOutPollRunsNoQuery() throws Exception {
+        MvcResult abandoned = mvc.perform(MockMvcRequestBuilders.get("/products/changes?since=0")).andReturn();
+        MockAsyncContext asyncContext = (MockAsyncContext) abandoned.getRequest().getAsyncContext();
+
+        for (AsyncListener listener : asyncContext.getListeners())
+            listener.onTimeout(new AsyncEvent(asyncContext));
+        Assert.assertEquals("[]", mvc.perform(MockMvcRequestBuilders.asyncDispatch(abandoned))
+                .andReturn().getResponse().getContentAsString());
+
+        MvcResult poll = mvc.perform(MockMvcRequestBuilders.get("/products/changes?since=0")).andReturn();
+        double queries = changeQueries();
+
+        createProduct();
+        mvc.perform(MockMvcRequestBuilders.asyncDispatch(poll)).andReturn();
+        Thread.sleep(200);
+
+        Assert.assertEquals(queries + 1, changeQueries(), 0);
+    }
+
+    @Test
+    public void testUnknownSequenceIsGone() throws Exception {
+        createProduct();
+
+        Assert.assertEquals(410, mvc.perform(MockMvcRequestBuilders.get("/products/changes?since=1000"))
+                .andReturn().getResponse().getStatus());
+        Assert.assertEquals(400, mvc.perform(MockMvcRequestBuilders.get("/products/changes?since=-1"))
+                .andReturn().getResponse().getStatus());
+    }
+
+    @Test
+    public void testEventStreamSendsChangesWithTheirSequence() throws Exception {
+        createProduct();
+        createProduct();
+
+        MvcResult stream = mvc.perform(MockMvcRequestBuilders.get("/products/changes")
+                .header("Last-Event-ID", "1")
+                .accept(MediaType.TEXT_EVENT_STREAM)).andReturn();
+        String events = stream.getResponse().getContentAsString();
+
+        Assert.assertTrue(stream.getRequest().isAsyncStarted());
+        Assert.assertFalse(events.contains("id:1\n"));
+        Assert.assertTrue(events.contains("id:2\nevent:product-change\ndata:"));
+    }
+
+    private Product createProduct() throws Exception {
+        Product product = Product.builder()
+                .productName("testProduct")
+                .manufacturer("testManufacturer")
+                .price(100.50)
+                .build();
+
+        MockHttpServletResponse response = mvc.perform(MockMvcRequestBuilders
+                .post("/products")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(product))).andReturn().getResponse();
+
+        return mapper.readValue(response.getContentAsString(), Product.class);
+    }
+
+    private double changeQueries() {
+        return meterRegistry.find(TimedSqlLogger.SQL_TIMER).tag("statement", "ProductDao.getChanges").timers().stream()
+                .mapToLong(Timer::count)
+                .sum();
+    }
+}
@@ -1,18 +1,30 @@
 package com.example.springbootcrudapp;
 
 
+import com.example.springbootcrudapp.metrics.ProductMetrics;
+import com.example.springbootcrudapp.metrics.TimedSqlLogger;
 import com.example.springbootcrudapp.model.Product;
+import com.example.springbootcrudapp.model.ProductBatchResult;
+import com.example.springbootcrudapp.model.ProductBatchStatus;
+import com.example.springbootcrudapp.search.ProductTextIndex;
+import com.example.springbootcrudapp.service.ProductService;
+import com.example.springbootcrudapp.shared.InvalidDataException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
@@ -25,10 +37,17 @@ import java.util.UUID;
 @SpringBootTest
 @AutoConfigureMockMvc
 @DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:product-controller-test")
 public class ProductControllerTest {
     @Autowired
     private MockMvc mvc;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ProductTextIndex productTextIndex;
+
     @Test
     public void testCreateProduct() throws Exception {
         Product product = Product.builder()
@@ -220,7 +239,7 @@ public class ProductControllerTest {
                 .contentType(MediaType.APPLICATION_JSON)
                 .accept(MediaType.APPLICATION_JSON)).andReturn();
 
-        MockHttpServletResponse getResponse = getResult.getResponse();
+        MockHttpServletResponse getResponse = mvc.perform(MockMvcRequestBuilders.asyncDispatch(getResult)).andReturn().getResponse();
         List<Product> retrievedProducts = mapper.readValue(getResponse.getContentAsString(), new TypeReference<>() {
         });
 
@@ -228,10 +247,432 @@ public class ProductControllerTest {
         Assert.assertEquals(2, retrievedProducts.size());
     }
 
+    @Test
+    public void testGetProductsInBinaryAndCsvFormats() throws Exception {
+        Product product = Product.builder()
+                .productName("test, \"quoted\" product")
+                .manufacturer("testManufacturer")
+                .price(100.50)
+                .build();
+
+        ObjectMapper mapper = new ObjectMapper();
+
+        MvcResult createResult = mvc.perform(MockMvcRequestBuilders
+                .post("/products")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(product))
+                .accept(MediaType.APPLICATION_JSON)).andReturn();
+        Product createdProduct = mapper.readValue(createResult.getResponse().getContentAsString(), Product.class);
+
+        for (ObjectMapper binaryMapper : List.of(new ObjectMapper(new SmileFactory()), new ObjectMapper(new CBORFactory()))) {
+            String mediaType = binaryMapper.getFactory() instanceof SmileFactory ? "application/x-jackson-smile" : "application/cbor";
+
+            MvcResult binaryResult = mvc.perform(MockMvcRequestBuilders
+                    .get("/products")
+                    .accept(mediaType)).andReturn();
+            MockHttpServletResponse binaryResponse = mvc.perform(MockMvcRequestBuilders.asyncDispatch(binaryResult)).andReturn().getResponse();
+            List<Product> binaryProducts = binaryMapper.readValue(binaryResponse.getContentAsByteArray(), new TypeReference<>() {
+            });
+
+            Assert.assertEquals(200, binaryResponse.getStatus());
+            Assert.assertEquals(mediaType, binaryResponse.getContentType());
+            Assert.assertEquals(List.of(createdProduct), binaryProducts);
+        }
+
+        MvcResult csvResult = mvc.perform(MockMvcRequestBuilders
+                .get("/products")
+                .accept("text/csv")).andReturn();
+        MockHttpServletResponse csvResponse = mvc.perform(MockMvcRequestBuilders.asyncDispatch(csvResult)).andReturn().getResponse();
+
+        Assert.assertEquals(200, csvResponse.getStatus());
+        Assert.assertEquals("text/csv", csvResponse.getContentType());
+        Assert.assertEquals("id,version,productName,manufacturer,price\r\n"
+                        + createdProduct.getId() + ",1,\"test, \"\"quoted\"\" product\",testManufacturer,100.50\r\n",
+                csvResponse.getContentAsString());
+        Assert.assertTrue(csvResponse.getHeader(HttpHeaders.ETAG).endsWith("-csv\""));
+        Assert.assertEquals(HttpHeaders.ACCEPT, csvResponse.getHeader(HttpHeaders.VARY));
+    }
+
+    @Test
+    public void testCreateAndGetProductPages() throws Exception {
+        Product product = Product.builder()
+                .productName("testProduct")
+                .manufacturer("testManufacturer")
+                .price(100.50)
+                .build();
+
+        ObjectMapper mapper = new ObjectMapper();
+
+        for (int i = 0; i < 3; i++) {
+            MvcResult result = mvc.perform(MockMvcRequestBuilders
+                    .post("/products")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(product))
+                    .accept(MediaType.APPLICATION_JSON)).andReturn();
+
+            Assert.assertEquals(200, result.getResponse().getStatus());
+        }
+
+        MockHttpServletResponse firstPage = mvc.perform(MockMvcRequestBuilders
+                .get("/products?limit=2")
+                .accept(MediaType.APPLICATION_JSON)).andReturn().getResponse();
+
+        Assert.assertEquals(200, firstPage.getStatus());
+        List<Product> firstProducts = mapper.readValue(firstPage.getContentAsString(), new TypeReference<>() {
+        });
+        Assert.assertEquals(2, firstProducts.size());
+        Assert.assertTrue(firstProducts.get(0).getId().toString().compareTo(firstProducts.get(1).getId().toString()) < 0);
+        Assert.assertNotNull(firstPage.getHeader(HttpHeaders.LINK));
+
+        MockHttpServletResponse secondPage = mvc.perform(MockMvcRequestBuilders
+                .get("/products?limit=2&after=" + firstProducts.get(1).getId())
+                .accept(MediaType.APPLICATION_JSON)).andReturn().getResponse();
+
+        Assert.assertEquals(200, secondPage.getStatus());
+        List<Product> secondProducts = mapper.readValue(secondPage.getContentAsString(), new TypeReference<>() {
+        });
+        Assert.assertEquals(1, secondProducts.size());
+        Assert.assertTrue(firstProducts.get(1).getId().toString().compareTo(secondProducts.get(0).getId().toString()) < 0);
+        Assert.assertNull(secondPage.getHeader(HttpHeaders.LINK));
+
+        MockHttpServletResponse invalidPage = mvc.perform(MockMvcRequestBuilders
+                .get("/products?limit=0")
+                .accept(MediaType.APPLICATION_JSON)).andReturn().getResponse();
+
+        Assert.assertEquals(400, invalidPage.getStatus());
+    }
+
+    @Test
+    public void testSearchProducts() throws Exception {
+        Product product = Product.builder()
+                .productName("testProduct")
+                .manufacturer("testManufacturer")
+                .price(100.50)
+                .build();
+        List<Product> products = List.of(
+                product,
+                product.toBuilder().productName("testProduct_2").price(20.00).build(),
+                product.toBuilder().productName("otherProduct").price(50.00).build(),
+                product.toBuilder().manufacturer("otherManufacturer").price(60.00).build());
+
+        ObjectMapper mapper = new ObjectMapper();
+
+        MockHttpServletResponse createResponse = mvc.perform(MockMvcRequestBuilders
+                .post("/products/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(products))
+                .accept(MediaType.APPLICATION_JSON)).andReturn().getResponse();
+        Assert.assertEquals(200, createResponse.getStatus());
+
+        MockHttpServletResponse searchResponse = mvc.perform(MockMvcRequestBuilders
+                .get("/products/search?manufacturer=testManufacturer&namePrefix=testProduct&maxPrice=200&sort=-price")
+                .accept(MediaType.APPLICATION_JSON)).andReturn().getResponse();
+
+        Assert.assertEquals(200, searchResponse.getStatus());
+        List<Product> found = mapper.readValue(searchResponse.getContentAsString(), new TypeReference<>() {
+        });
+        Assert.assertEquals(2, found.size());
+        Assert.assertEquals(100.50, found.get(0).getPrice(), 0);
+        Assert.assertEquals(20.00, found.get(1).getPrice(), 0);
+
+        MockHttpServletResponse wildcardResponse = mvc.perform(MockMvcRequestBuilders
+                .get("/products/search?namePrefix=testProduct_")
+                .accept(MediaType.APPLICATION_JSON)).andReturn().getResponse();
+        List<Product> wildcardFound = mapper.readValue(wildcardResponse.getContentAsString(), new TypeReference<>() {
+        });
+        Assert.assertEquals(1, wildcardFound.size());
+        Assert.assertEquals("testProduct_2", wildcardFound.get(0).getProductName());
+
+        MockHttpServletResponse pageResponse = mvc.perform(MockMvcRequestBuilders
+                .get("/products/search?minPrice=50&sort=price&limit=2")
+                .accept(MediaType.APPLICATION_JSON)).andReturn().getResponse();
+        List<Product> page = mapper.readValue(pageResponse.getContentAsString(), new TypeReference<>() {
+        });
+        Assert.assertEquals(2, page.size());
+        Assert.assertEquals(50.00, page.get(0).getPrice(), 0);
+        Assert.assertEquals(60.00, page.get(1).getPrice(), 0);
+        Assert.assertTrue(pageResponse.getHeader(HttpHeaders.LINK).contains("offset=2"));
+
+        Assert.assertEquals(400, mvc.perform(MockMvcRequestBuilders.get("/products/search?sort=weight"))
+                .andReturn().getResponse().getStatus());
+        Assert.assertEquals(400, mvc.perform(MockMvcRequestBuilders.get("/products/search?minPrice=10&maxPrice=5"))
+                .andReturn().getResponse().getStatus());
+    }
+
+    @Test
+    public void testSearchProductsByText() throws Exception {
+        Product product = Product.builder()
+                .productName("Galaxy Phone")
+                .manufacturer("Samsung")
+                .price(100.50)
+                .build();
+
+        ObjectMapper mapper = new ObjectMapper();
+
+        MvcResult createResult = mvc.perform(MockMvcRequestBuilders
+                .post("/products")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(product))
+                .accept(MediaType.APPLICATION_JSON)).andReturn();
+        Product createdProduct = mapper.readValue(createResult.getResponse().getContentAsString(), Product.class);
+
+        MockHttpServletResponse searchResponse = mvc.perform(MockMvcRequestBuilders
+                .get("/products/search/text?q=samsnug")
+                .accept(MediaType.APPLICATION_JSON)).andReturn().getResponse();
+
+        Assert.assertEquals(200, searchResponse.getStatus());
+        List<Product> found = mapper.readValue(searchResponse.getContentAsString(), new TypeReference<>() {
+        });
+        Assert.assertEquals(List.of(createdProduct), found);
+
+        Product updatedProduct = createdProduct.toBuilder().productName("Pixel Phone").manufacturer("Google").build();
+        mvc.perform(MockMvcRequestBuilders
+                .put("/products/" + createdProduct.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(updatedProduct))
+                .accept(MediaType.APPLICATION_JSON)).andReturn();
+
+        MockHttpServletResponse staleResponse = mvc.perform(MockMvcRequestBuilders
+                .get("/products/search/text?q=samsung")
+                .accept(MediaType.APPLICATION_JSON)).andReturn().getResponse();
+        Assert.assertEquals("[]", staleResponse.getContentAsString());
+
+        mvc.perform(MockMvcRequestBuilders.delete("/products/" + createdProduct.getId())).andReturn();
+
+        MockHttpServletResponse deletedResponse = mvc.perform(MockMvcRequestBuilders
+                .get("/products/search/text?q=pixel")
+                .accept(MediaType.APPLICATION_JSON)).andReturn().getResponse();
+        Assert.assertEquals("[]", deletedResponse.getContentAsString());
+
+        Assert.assertEquals(400, mvc.perform(MockMvcRequestBuilders.get("/products/search/text?q= "))
+                .andReturn().getResponse().getStatus());
+    }
+
+    @Test
+    public void testBatchCreateUpdateAndDeleteProducts() throws Exception {
+        Product product = Product.builder()
+                .productName("testProduct")
+                .manufacturer("testManufacturer")
+                .price(100.50)
+                .build();
+        Product invalidProduct = product.toBuilder().price(-100.50).build();
+
+        ObjectMapper mapper = new ObjectMapper();
+
+        MockHttpServletResponse createResponse = mvc.perform(MockMvcRequestBuilders
+                .post("/products/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(List.of(product, invalidProduct, product)))
+                .accept(MediaType.APPLICATION_JSON)).andReturn().getResponse();
+
+        Assert.assertEquals(200, createResponse.getStatus());
+        List<ProductBatchResult> created = mapper.readValue(createResponse.getContentAsString(), new TypeReference<>() {
+        });
+        Assert.assertEquals(3, created.size());
+        Assert.assertEquals(ProductBatchStatus.CREATED, created.get(0).getStatus());
+        Assert.assertEquals(ProductBatchStatus.INVALID, created.get(1).getStatus());
+        Assert.assertEquals(ProductBatchStatus.CREATED, created.get(2).getStatus());
+        Assert.assertEquals(1, (long) created.get(0).getVersion());
+
+        Product updated = product.toBuilder().id(created.get(0).getId()).version(1L).price(90.50).build();
+        Product stale = product.toBuilder().id(created.get(2).getId()).version(5L).build();
+        Product missing = product.toBuilder().id(UUID.randomUUID()).version(1L).build();
+
+        MockHttpServletResponse updateResponse = mvc.perform(MockMvcRequestBuilders
+                .put("/products/batch")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content(mapper.writeValueAsString(updated) + "\n" + mapper.writeValueAsString(stale) + "\n" + mapper.writeValueAsString(missing) + "\n")
+                .accept(MediaType.APPLICATION_JSON)).andReturn().getResponse();
+
+        Assert.assertEquals(200, updateResponse.getStatus());
+        List<ProductBatchResult> updateResults = mapper.readValue(updateResponse.getContentAsString(), new TypeReference<>() {
+        });
+        Assert.assertEquals(ProductBatchStatus.UPDATED, updateResults.get(0).getStatus());
+        Assert.assertEquals(2, (long) updateResults.get(0).getVersion());
+        Assert.assertEquals(ProductBatchStatus.CONFLICT, updateResults.get(1).getStatus());
+        Assert.assertEquals(ProductBatchStatus.NOT_FOUND, updateResults.get(2).getStatus());
+
+        MockHttpServletResponse getResponse = mvc.perform(MockMvcRequestBuilders
+                .get("/products/" + updated.getId())
+                .accept(MediaType.APPLICATION_JSON)).andReturn().getResponse();
+        Product retrievedProduct = mapper.readValue(getResponse.getContentAsString(), Product.class);
+        Assert.assertEquals(2, (long) retrievedProduct.getVersion());
+        Assert.assertEquals(updated.getPrice(), retrievedProduct.getPrice());
+
+        Product deleted = Product.builder().id(updated.getId()).version(2L).build();
+
+        MockHttpServletResponse deleteResponse = mvc.perform(MockMvcRequestBuilders
+                .delete("/products/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(List.of(deleted)))
+                .accept(MediaType.APPLICATION_JSON)).andReturn().getResponse();
+
+        Assert.assertEquals(200, deleteResponse.getStatus());
+        List<ProductBatchResult> deleteResults = mapper.readValue(deleteResponse.getContentAsString(), new TypeReference<>() {
+        });
+        Assert.assertEquals(ProductBatchStatus.DELETED, deleteResults.get(0).getStatus());
+
+        MockHttpServletResponse deletedGetResponse = mvc.perform(MockMvcRequestBuilders
+                .get("/products/" + updated.getId())
+                .accept(MediaType.APPLICATION_JSON)).andReturn().getResponse();
+        Assert.assertEquals(404, deletedGetResponse.getStatus());
+    }
+
+    @Test
+    public void testOversizedBatchIsRolledBack() throws Exception {
+        String product = new ObjectMapper().writeValueAsString(Product.builder()
+                .productName("testProduct")
+                .manufacturer("testManufacturer")
+                .price(100.50)
+                .build());
+
+        MockHttpServletResponse response = mvc.perform(MockMvcRequestBuilders
+                .post("/products/batch")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content((product + "\n").repeat(ProductService.MAX_BATCH_SIZE + 1))
+                .accept(MediaType.APPLICATION_JSON)).andReturn().getResponse();
+
+        Assert.assertEquals(400, response.getStatus());
+        Assert.assertEquals("[]", mvc.perform(MockMvcRequestBuilders.get("/products?limit=10"))
+                .andReturn().getResponse().getContentAsString());
+        Assert.assertEquals(0, productTextIndex.size());
+    }
+
+    @Test
+    public void testUpdateAndDeleteProductWithStaleVersion() throws Exception {
+        Product product = Product.builder()
+                .productName("testProduct")
+                .manufacturer("testManufacturer")
+                .price(100.50)
+                .build();
+
+        ObjectMapper mapper = new ObjectMapper();
+
+        MvcResult result = mvc.perform(MockMvcRequestBuilders
+                .post("/products")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(product))
+                .accept(MediaType.APPLICATION_JSON)).andReturn();
+
+        Product createdProduct = mapper.readValue(result.getResponse().getContentAsString(), Product.class);
+        createdProduct.setVersion(2L);
+
+        MockHttpServletResponse staleBodyResponse = mvc.perform(MockMvcRequestBuilders
+                .put("/products/" + createdProduct.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(createdProduct))
+                .accept(MediaType.APPLICATION_JSON)).andReturn().getResponse();
+
+        Assert.assertEquals(409, staleBodyResponse.getStatus());
+
+        MockHttpServletResponse staleIfMatchResponse = mvc.perform(MockMvcRequestBuilders
+                .put("/products/" + createdProduct.getId())
+                .header(HttpHeaders.IF_MATCH, "\"2\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(createdProduct))
+                .accept(MediaType.APPLICATION_JSON)).andReturn().getResponse();
+
+        Assert.assertEquals(412, staleIfMatchResponse.getStatus());
+
+        MockHttpServletResponse ifMatchResponse = mvc.perform(MockMvcRequestBuilders
+                .put("/products/" + createdProduct.getId())
+                .header(HttpHeaders.IF_MATCH, "\"1\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(createdProduct))
+                .accept(MediaType.APPLICATION_JSON)).andReturn().getResponse();
+
+        Assert.assertEquals(200, ifMatchResponse.getStatus());
+        Assert.assertEquals(2, (long) mapper.readValue(ifMatchResponse.getContentAsString(), Product.class).getVersion());
+
+        MockHttpServletResponse staleDeleteResponse = mvc.perform(MockMvcRequestBuilders
+                .delete("/products/" + createdProduct.getId())
+                .header(HttpHeaders.IF_MATCH, "\"1\"")
+                .accept(MediaType.APPLICATION_JSON)).andReturn().getResponse();
+
+        Assert.assertEquals(412, staleDeleteResponse.getStatus());
+        Assert.assertEquals(3, meterRegistry.get(ProductMetrics.OPTIMISTIC_LOCK_FAILURES).counters().stream()
+                .mapToDouble(counter -> counter.count()).sum(), 0);
+        Assert.assertTrue(meterRegistry.get(TimedSqlLogger.SQL_TIMER).tag("statement", "ProductDao.updateProduct").timer().count() > 0);
+        Assert.assertTrue(meterRegistry.get("product.repository").tag("method", "updateProduct").timer().count() > 0);
+
+        MockHttpServletResponse deleteResponse = mvc.perform(MockMvcRequestBuilders
+                .delete("/products/" + createdProduct.getId())
+                .header(HttpHeaders.IF_MATCH, "\"2\"")
+                .accept(MediaType.APPLICATION_JSON)).andReturn().getResponse();
+
+        Assert.assertEquals(200, deleteResponse.getStatus());
+    }
+
+    @Test
+    public void testConditionalGetProductAndProducts() throws Exception {
+        Product product = Product.builder()
+                .productName("testProduct")
+                .manufacturer("testManufacturer")
+                .price(100.50)
+                .build();
+
+        ObjectMapper mapper = new ObjectMapper();
+
+        MockHttpServletResponse createResponse = mvc.perform(MockMvcRequestBuilders
+                .post("/products")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(product))
+                .accept(MediaType.APPLICATION_JSON)).andReturn().getResponse();
+
+        Product createdProduct = mapper.readValue(createResponse.getContentAsString(), Product.class);
+        Assert.assertEquals("\"1\"", createResponse.getHeader(HttpHeaders.ETAG));
+
+        MockHttpServletResponse notModifiedResponse = mvc.perform(MockMvcRequestBuilders
+                .get("/products/" + createdProduct.getId())
+                .header(HttpHeaders.IF_NONE_MATCH, "\"1\"")
+                .accept(MediaType.APPLICATION_JSON)).andReturn().getResponse();
+
+        Assert.assertEquals(304, notModifiedResponse.getStatus());
+        Assert.assertEquals("", notModifiedResponse.getContentAsString());
+
+        MockHttpServletResponse productsResponse = mvc.perform(MockMvcRequestBuilders
+                .get("/products?limit=10")
+                .accept(MediaType.APPLICATION_JSON)).andReturn().getResponse();
+
+        String catalogETag = productsResponse.getHeader(HttpHeaders.ETAG);
+        Assert.assertNotNull(catalogETag);
+
+        MockHttpServletResponse productsNotModifiedResponse = mvc.perform(MockMvcRequestBuilders
+                .get("/products")
+                .header(HttpHeaders.IF_NONE_MATCH, catalogETag)
+                .accept(MediaType.APPLICATION_JSON)).andReturn().getResponse();
+
+        Assert.assertEquals(304, productsNotModifiedResponse.getStatus());
+
+        createdProduct.setPrice(90.50);
+
+        mvc.perform(MockMvcRequestBuilders
+                .put("/products/" + createdProduct.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(createdProduct))
+                .accept(MediaType.APPLICATION_JSON)).andReturn();
+
+        MockHttpServletResponse modifiedResponse = mvc.perform(MockMvcRequestBuilders
+                .get("/products/" + createdProduct.getId())
+                .header(HttpHeaders.IF_NONE_MATCH, "\"1\"")
+                .accept(MediaType.APPLICATION_JSON)).andReturn().getResponse();
+
+        Assert.assertEquals(200, modifiedResponse.getStatus());
+        Assert.assertEquals("\"2\"", modifiedResponse.getHeader(HttpHeaders.ETAG));
+
+        MockHttpServletResponse productsModifiedResponse = mvc.perform(MockMvcRequestBuilders
+                .get("/products?limit=10")
+                .header(HttpHeaders.IF_NONE_MATCH, catalogETag)
+                .accept(MediaType.APPLICATION_JSON)).andReturn().getResponse();
+
+        Assert.assertEquals(200, productsModifiedResponse.getStatus());
+        Assert.assertNotEquals(catalogETag, productsModifiedResponse.getHeader(HttpHeaders.ETAG));
+    }
+
     @Test
     public void testUpdateProductThatDoesNotExist() throws Exception {
         Product product = Product.builder()
-                .id(UUID.randomUUID().toString())
+                .id(UUID.randomUUID())
                 .version(1L)
                 .productName("testProduct")
                 .manufacturer("testManufacturer")
@@ -253,7 +694,7 @@ public class ProductControllerTest {
     @Test
     public void testDeleteProductThatDoesNotExist() throws Exception {
         Product product = Product.builder()
-                .id(UUID.randomUUID().toString())
+                .id(UUID.randomUUID())
                 .version(1L)
                 .productName("testProduct")
                 .manufacturer("testManufacturer")
@@ -321,4 +762,41 @@ public class ProductControllerTest {
         MockHttpServletResponse updateResponse = updateResult.getResponse();
         Assert.assertEquals(400, updateResponse.getStatus());
     }
+
+    @Test
+    public void testErrorResponses() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+
+        MockHttpServletResponse notFound = mvc.perform(MockMvcRequestBuilders
+                .get("/products/" + UUID.randomUUID())
+                .accept(MediaType.APPLICATION_JSON)).andReturn().getResponse();
+        Assert.assertEquals(404, notFound.getStatus());
+        Assert.assertEquals("Entity not found", mapper.readTree(notFound.getContentAsString()).get("message").asText());
+
+        MockHttpServletResponse malformedId = mvc.perform(MockMvcRequestBuilders
+                .get("/products/not-a-uuid")
+                .accept(MediaType.APPLICATION_JSON)).andReturn().getResponse();
+        Assert.assertEquals(400, malformedId.getStatus());
+        Assert.assertEquals(MediaType.APPLICATION_JSON_VALUE, malformedId.getContentType());
+        Assert.assertEquals(400, mapper.readTree(malformedId.getContentAsString()).get("status").asInt());
+
+        Assert.assertEquals(400, mvc.perform(MockMvcRequestBuilders.get("/products?limit=0"))
+                .andReturn().getResponse().getStatus());
+
+        for (String price : List.of("NaN", "Infinity", "-Infinity", "1e20")) {
+            Assert.assertEquals(400, mvc.perform(MockMvcRequestBuilders.get("/products/search?minPrice=" + price))
+                    .andReturn().getResponse().getStatus());
+            Assert.assertEquals(400, mvc.perform(MockMvcRequestBuilders.get("/products/search?maxPrice=" + price))
+                    .andReturn().getResponse().getStatus());
+            Assert.assertEquals(400, mvc.perform(MockMvcRequestBuilders
+                    .post("/products")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"productName\":\"p\",\"manufacturer\":\"m\",\"price\":\"" + price + "\"}"))
+                    .andReturn().getResponse().getStatus());
+        }
+
+        InvalidDataException invalidData = new InvalidDataException("Invalid page limit [%d]", 0);
+        Assert.assertEquals(0, invalidData.getStackTrace().length);
+        Assert.assertEquals("Invalid page limit [0]", invalidData.getMessage());
+    }
 }
@@ -0,0 +1,50 @@
+package com.example.springbootcrudapp;
+
+import com.example.springbootcrudapp.id.TimeOrderedProductIdGenerator;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+public class ProductIdGeneratorTest {
+    private static final Instant NOW = Instant.parse("2024-05-01T12:00:00Z");
+
+    @Test
+    public void testTimeOrderedIdsAreVersion7WithTheTimestamp() {
+        UUID id = new TimeOrderedProductIdGenerator(Clock.fixed(NOW, ZoneOffset.UTC)).nextId();
+
+        Assert.assertEquals(7, id.version());
+        Assert.assertEquals(2, id.variant());
+        Assert.assertEquals(NOW.toEpochMilli(), id.getMostSignificantBits() >>> 16);
+    }
+
+    @Test
+    public void testLaterIdsSortAfterEarlierOnes() {
+        UUID earlier = new TimeOrderedProductIdGenerator(Clock.fixed(NOW, ZoneOffset.UTC)).nextId();
+        UUID later = new TimeOrderedProductIdGenerator(Clock.fixed(NOW.plus(Duration.ofMillis(1)), ZoneOffset.UTC)).nextId();
+
+        Assert.assertTrue(earlier.toString().compareTo(later.toString()) < 0);
+    }
+
+    @Test
+    public void testIdsWithinOneMillisecondAscendAndAreUnique() {
+        TimeOrderedProductIdGenerator generator = new TimeOrderedProductIdGenerator(Clock.fixed(NOW, ZoneOffset.UTC));
+        Set<UUID> ids = new HashSet<>();
+        UUID previous = generator.nextId();
+
+        for (int i = 0; i < 100_000; i++) {
+            UUID id = generator.nextId();
+            Assert.assertTrue(previous.toString().compareTo(id.toString()) < 0);
+            ids.add(id);
+            previous = id;
+        }
+
+        Assert.assertEquals(100_000, ids.size());
+    }
+}
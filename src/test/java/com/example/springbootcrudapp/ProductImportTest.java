@@ -0,0 +1,131 @@
+package com.example.springbootcrudapp;
+
+import com.example.springbootcrudapp.importer.ProductImportFormat;
+import com.example.springbootcrudapp.model.Product;
+import com.example.springbootcrudapp.service.ProductService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:product-import-test",
+        "product.import.directory=${java.io.tmpdir}/product-import-test",
+        "product.import.parallelism=2",
+        "product.import.chunk-size=2"
+})
+public class ProductImportTest {
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    @Autowired
+    private ProductService productService;
+
+    @Test
+    public void testNdjsonImportRejectsInvalidRows() throws Exception {
+        String body = "{\"productName\":\"Galaxy Phone\",\"manufacturer\":\"Samsung\",\"price\":799.0}\n" +
+                "{\"productName\":\"Pixel Phone\",\"manufacturer\":\"Google\",\"price\":-1}\n" +
+                "\n" +
+                "{\"productName\":\"Lumia\",\"manufacturer\":\"Nokia\",\"price\":199.5}\n" +
+                "not json\n" +
+                "{\"productName\":\"iPhone\",\"manufacturer\":\"Apple\",\"price\":999.0}\n";
+
+        JsonNode result = runImport(MediaType.APPLICATION_NDJSON_VALUE, body);
+
+        Assert.assertEquals(5, result.get("rowsRead").asLong());
+        Assert.assertEquals(3, result.get("rowsImported").asLong());
+        Assert.assertEquals(2, result.get("rowsRejected").asLong());
+
+        List<String> rejected = Files.readAllLines(Path.of(result.get("deadLetterFile").asText()));
+        Assert.assertEquals(2, rejected.size());
+        Assert.assertTrue(rejected.stream().anyMatch(line -> line.contains("Invalid price")
+                && line.contains("Pixel Phone")));
+
+        Map<String, Product> products = productsByName();
+        Assert.assertEquals(3, products.size());
+        Assert.assertEquals(199.5, products.get("Lumia").getPrice(), 0);
+        Assert.assertEquals(1, (int) products.get("Lumia").getVersion());
+    }
+
+    @Test
+    public void testCsvImportReadsQuotedFields() throws Exception {
+        String body = "\uFEFFid,version,productName,manufacturer,price\r\n" +
+                ",,\"Galaxy Phone, 128 GB\",Samsung,799.0\r\n" +
+                ",,\"The \"\"Pixel\"\"\nPhone\",Google,599.0\r\n" +
+                ",,Lumia,Nokia,\r\n";
+
+        JsonNode result = runImport(ProductImportFormat.CSV_VALUE, body);
+
+        Assert.assertEquals(3, result.get("rowsRead").asLong());
+        Assert.assertEquals(2, result.get("rowsImported").asLong());
+        Assert.assertEquals(1, result.get("rowsRejected").asLong());
+
+        Map<String, Product> products = productsByName();
+        Assert.assertEquals("Samsung", products.get("Galaxy Phone, 128 GB").getManufacturer());
+        Assert.assertEquals(599.0, products.get("The \"Pixel\"\nPhone").getPrice(), 0);
+    }
+
+    @Test
+    public void testUnknownImportIsNotFound() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/products/imports/unknown"))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
+        mvc.perform(MockMvcRequestBuilders.post("/products/imports")
+                .contentType(MediaType.APPLICATION_XML)
+                .content("<products/>"))
+                .andExpect(MockMvcResultMatchers.status().isUnsupportedMediaType());
+    }
+
+    private JsonNode runImport(String contentType, String body) throws Exception {
+        String location = mvc.perform(MockMvcRequestBuilders.post("/products/imports")
+                .contentType(contentType)
+                .content(body))
+                .andExpect(MockMvcResultMatchers.status().isAccepted())
+                .andReturn().getResponse().getHeader(HttpHeaders.LOCATION);
+
+        for (int attempt = 0; attempt < 100; attempt++) {
+            JsonNode result = mapper.readTree(mvc.perform(MockMvcRequestBuilders.get(location))
+                    .andExpect(MockMvcResultMatchers.status().isOk())
+                    .andReturn().getResponse().getContentAsString());
+
+            if (!"RUNNING".equals(result.get("status").asText())) {
+                Assert.assertEquals("COMPLETED", result.get("status").asText());
+                return result;
+            }
+
+            Thread.sleep(100);
+        }
+
+        throw new AssertionError("Import did not finish");
+    }
+
+    private Map<String, Product> productsByName() {
+        return productService.getProducts(null, ProductService.MAX_PAGE_SIZE).stream()
+                .collect(Collectors.toMap(Product::getProductName, Function.identity()));
+    }
+}
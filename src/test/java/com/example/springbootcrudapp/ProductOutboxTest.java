@@ -0,0 +1,111 @@
+package com.example.springbootcrudapp;
+
+import com.example.springbootcrudapp.model.Product;
+import com.example.springbootcrudapp.model.ProductChange;
+import com.example.springbootcrudapp.model.ProductChangeType;
+import com.example.springbootcrudapp.outbox.FileProductEventSink;
+import com.example.springbootcrudapp.outbox.InMemoryProductEventSink;
+import com.example.springbootcrudapp.outbox.ProductEventSink;
+import com.example.springbootcrudapp.outbox.ProductOutboxRelay;
+import com.example.springbootcrudapp.repository.ProductRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:product-outbox-test",
+        "product.outbox.enabled=true",
+        "product.outbox.sink=in-memory",
+        "product.outbox.batch-size=2",
+        "product.outbox.interval=1h"
+})
+public class ProductOutboxTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    @Autowired
+    private ProductEventSink productEventSink;
+
+    @Autowired
+    private ProductOutboxRelay productOutboxRelay;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Test
+    public void testRelayPublishesEveryChangeInBatches() throws Exception {
+        Product product = createProduct();
+        mvc.perform(MockMvcRequestBuilders
+                .put("/products/" + product.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(product.toBuilder().price(99.99).build()))).andReturn();
+        mvc.perform(MockMvcRequestBuilders.delete("/products/" + product.getId())).andReturn();
+
+        productOutboxRelay.relay();
+
+        List<ProductChange> events = ((InMemoryProductEventSink) productEventSink).getEvents();
+        Assert.assertEquals(List.of(ProductChangeType.CREATED, ProductChangeType.UPDATED, ProductChangeType.DELETED),
+                events.stream().map(ProductChange::getType).collect(Collectors.toList()));
+        Assert.assertEquals(3, productOutboxRelay.relayedThrough());
+        Assert.assertEquals(3, productRepository.getRelayedThrough("default"));
+
+        productOutboxRelay.relay();
+        Assert.assertEquals(3, ((InMemoryProductEventSink) productEventSink).getEvents().size());
+    }
+
+    @Test
+    public void testFileSinkAppendsJsonLines() throws Exception {
+        Path file = temporaryFolder.getRoot().toPath().resolve("events/product-events.ndjson");
+        ProductChange change = ProductChange.builder().sequence(1).type(ProductChangeType.DELETED).id(UUID.randomUUID()).build();
+
+        try (FileProductEventSink sink = new FileProductEventSink(file, mapper)) {
+            sink.publish(List.of(change, ProductChange.builder().sequence(2).type(ProductChangeType.DELETED).id(change.getId()).build()));
+        }
+
+        List<String> lines = Files.readAllLines(file);
+        Assert.assertEquals(2, lines.size());
+        Assert.assertEquals(change, mapper.readValue(lines.get(0), ProductChange.class));
+    }
+
+    private Product createProduct() throws Exception {
+        Product product = Product.builder()
+                .productName("testProduct")
+                .manufacturer("testManufacturer")
+                .price(100.50)
+                .build();
+
+        MockHttpServletResponse response = mvc.perform(MockMvcRequestBuilders
+                .post("/products")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(product))).andReturn().getResponse();
+
+        return mapper.readValue(response.getContentAsString(), Product.class);
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.springbootcrudapp;
+
+import com.example.springbootcrudapp.metrics.TimedSqlLogger;
+import com.example.springbootcrudapp.model.Product;
+import com.example.springbootcrudapp.model.ProductSearch;
+import com.example.springbootcrudapp.replica.ProductReplica;
+import com.example.springbootcrudapp.replica.ProductReplicaRouter;
+import com.example.springbootcrudapp.replica.ProductReplicaStandIn;
+import com.example.springbootcrudapp.service.ProductService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:product-replica-test",
+        "product.datasource.replicas.urls[0]=jdbc:h2:mem:product-replica-test-1",
+        "product.datasource.replicas.urls[1]=jdbc:h2:mem:product-replica-test-2",
+        "product.datasource.replicas.max-lag=0s",
+        "product.datasource.replicas.health-check-interval=1h",
+        "product.datasource.replicas.stand-in=true",
+        "product.datasource.replicas.stand-in-interval=1h"
+})
+public class ProductReplicaTest {
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductReplicaRouter productReplicaRouter;
+
+    @Autowired
+    private ProductReplicaStandIn productReplicaStandIn;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    public void testReadsSeeOwnWrites() {
+        Product phone = productService.createProduct("Galaxy Phone", "Samsung", 800.0);
+
+        Assert.assertEquals(phone, productReplicaRouter.getProductById(phone.getId()).orElseThrow());
+        Assert.assertEquals(List.of(phone), productService.getProducts(null, 10));
+        Assert.assertEquals(2, reads("stale"), 0);
+
+        Assert.assertEquals(2, productReplicaStandIn.replicate());
+        Assert.assertEquals(List.of(phone), productService.searchProducts(samsung()));
+        Assert.assertEquals(2, reads("stale"), 0);
+
+        Product updated = productService.updateProduct(phone.toBuilder().price(900.0).build(), phone.getId());
+
+        Assert.assertEquals(2, updated.getVersion());
+        Assert.assertEquals(updated, productReplicaRouter.getProductById(phone.getId()).orElseThrow());
+        Assert.assertEquals(List.of(updated), productService.searchProducts(samsung()));
+
+        productReplicaStandIn.replicate();
+        productService.deleteProduct(phone.getId(), null);
+
+        Assert.assertEquals(Optional.empty(), productReplicaRouter.getProductById(phone.getId()));
+        Assert.assertEquals(List.of(), productService.getProducts(null, 10));
+
+        productReplicaStandIn.replicate();
+        for (ProductReplica replica : productReplicaRouter.getReplicas())
+            Assert.assertEquals(Optional.empty(), replica.getProductDao().getProductById(phone.getId()));
+    }
+
+    @Test
+    public void testReadsGoToReplicas() {
+        Product lumia = createInReplicas();
+
+        for (int i = 0; i < 4; i++)
+            Assert.assertEquals(lumia, productReplicaRouter.getProductById(lumia.getId()).orElseThrow());
+
+        Assert.assertEquals(List.of(lumia), productService.getProducts(null, 10));
+        Assert.assertEquals(List.of(lumia), productService.searchProducts(ProductSearch.builder().manufacturer("Nokia").limit(10).build()));
+        Assert.assertTrue(meterRegistry.get(TimedSqlLogger.SQL_TIMER).tag("datasource", "products-replica-1")
+                .tag("statement", "ProductDao.getProductById").timer().count() > 0);
+        // statistics reconciliation may read from the replicas too
+        Assert.assertTrue(reads("served") - meterRegistry.counter("product.replica.reads",
+                "replica", "primary", "result", "served").count() >= 6);
+    }
+
+    @Test
+    public void testFailedReplicaIsTakenOutOfRotation() throws Exception {
+        Product lumia = createInReplicas();
+        ProductReplica failed = productReplicaRouter.getReplicas().get(0);
+
+        try (Connection connection = DriverManager.getConnection(failed.getDataSource().getJdbcUrl(), "sa", "sa");
+             Statement statement = connection.createStatement()) {
+            statement.execute("SHUTDOWN");
+        }
+
+        for (int i = 0; i < 4; i++)
+            Assert.assertEquals(lumia, productReplicaRouter.getProductById(lumia.getId()).orElseThrow());
+
+        Assert.assertFalse(failed.isHealthy());
+        Assert.assertTrue(productReplicaRouter.getReplicas().get(1).isHealthy());
+
+        productReplicaRouter.checkHealth();
+        Assert.assertFalse(failed.isHealthy());
+    }
+
+    @Test
+    public void testLaggingReplicasAreDemotedUntilCaughtUp() {
+        productReplicaRouter.checkHealth();
+        for (ProductReplica replica : productReplicaRouter.getReplicas())
+            Assert.assertTrue(replica.isHealthy());
+
+        Product phone = productService.createProduct("Galaxy Phone", "Samsung", 800.0);
+        productReplicaRouter.checkHealth();
+
+        for (ProductReplica replica : productReplicaRouter.getReplicas())
+            Assert.assertFalse(replica.isHealthy());
+        Assert.assertEquals(phone, productReplicaRouter.getProductById(phone.getId()).orElseThrow());
+
+        productReplicaStandIn.replicate();
+        productReplicaRouter.checkHealth();
+
+        for (ProductReplica replica : productReplicaRouter.getReplicas())
+            Assert.assertTrue(replica.isHealthy());
+    }
+
+    /**
+     * A product only the replicas have, so that finding it shows the read went to one of them.
+     */
+    private Product createInReplicas() {
+        Product lumia = Product.builder()
+                .id(UUID.randomUUID())
+                .version(1)
+                .productName("Lumia")
+                .manufacturer("Nokia")
+                .price(200.0)
+                .build();
+
+        for (ProductReplica replica : productReplicaRouter.getReplicas())
+            replica.getProductDao().createProduct(lumia);
+
+        return lumia;
+    }
+
+    private static ProductSearch samsung() {
+        return ProductSearch.builder().manufacturer("Samsung").limit(10).build();
+    }
+
+    private double reads(String result) {
+        return meterRegistry.find("product.replica.reads").tag("result", result).counters().stream()
+                .mapToDouble(counter -> counter.count())
+                .sum();
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.springbootcrudapp;
+
+import com.example.springbootcrudapp.dao.ProductDao;
+import com.example.springbootcrudapp.model.Product;
+import com.example.springbootcrudapp.service.ProductService;
+import com.example.springbootcrudapp.stats.ProductStatistics;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:product-stats-test")
+public class ProductStatsTest {
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductStatistics productStatistics;
+
+    @Autowired
+    private ProductDao productDao;
+
+    @Test
+    public void testStatsFollowWrites() throws Exception {
+        Product phone = productService.createProduct("Galaxy Phone", "Samsung", 800.0);
+        Product tablet = productService.createProduct("Galaxy Tablet", "Samsung", 400.0);
+        Product pixel = productService.createProduct("Pixel Phone", "Google", 600.0);
+
+        JsonNode stats = getStats("/products/stats");
+        Assert.assertEquals(3, stats.get("count").asLong());
+        Assert.assertEquals(400.0, stats.get("minPrice").asDouble(), 0);
+        Assert.assertEquals(800.0, stats.get("maxPrice").asDouble(), 0);
+        Assert.assertEquals(600.0, stats.get("averagePrice").asDouble(), 0);
+
+        productService.updateProduct(pixel.toBuilder().manufacturer("Samsung").price(900.0).build(), pixel.getId());
+        productService.deleteProduct(tablet.getId(), null);
+
+        JsonNode grouped = getStats("/products/stats?groupBy=manufacturer");
+        Assert.assertEquals(1, grouped.size());
+        Assert.assertEquals("Samsung", grouped.get(0).get("manufacturer").asText());
+        Assert.assertEquals(2, grouped.get(0).get("count").asLong());
+        Assert.assertEquals(800.0, grouped.get(0).get("minPrice").asDouble(), 0);
+        Assert.assertEquals(1700.0, grouped.get(0).get("totalPrice").asDouble(), 0);
+
+        productService.deleteProduct(phone.getId(), null);
+        productService.deleteProduct(pixel.getId(), null);
+
+        stats = getStats("/products/stats");
+        Assert.assertEquals(0, stats.get("count").asLong());
+        Assert.assertFalse(stats.has("minPrice"));
+        Assert.assertTrue(productStatistics.reconcile());
+    }
+
+    @Test
+    public void testOlderWritesAreIgnored() {
+        Product phone = productService.createProduct("Galaxy Phone", "Samsung", 800.0);
+        long bytes = productStatistics.estimatedBytes();
+
+        productStatistics.put(phone.toBuilder().version(3).manufacturer("Google").price(600.0).build());
+        productStatistics.put(phone.toBuilder().version(2).price(900.0).build());
+
+        Assert.assertEquals(Optional.empty(), productStatistics.getStats("Samsung"));
+        Assert.assertEquals(60_000, productStatistics.getStats("Google").orElseThrow().getTotalPriceMinor());
+        Assert.assertTrue(bytes > 0);
+    }
+
+    @Test
+    public void testUnknownGroupsAreRejected() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/products/stats?manufacturer=Nokia"))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
+        mvc.perform(MockMvcRequestBuilders.get("/products/stats?groupBy=productName"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    @Test
+    public void testReconciliationRepairsDrift() throws Exception {
+        productService.createProduct("Galaxy Phone", "Samsung", 800.0);
+        productDao.createProduct(Product.builder()
+                .id(UUID.randomUUID())
+                .version(1)
+                .productName("Lumia")
+                .manufacturer("Nokia")
+                .price(200.0)
+                .build());
+
+        Assert.assertEquals(1, getStats("/products/stats").get("count").asLong());
+        Assert.assertFalse(productStatistics.reconcile());
+        Assert.assertTrue(productStatistics.reconcile());
+
+        JsonNode nokia = getStats("/products/stats?manufacturer=Nokia");
+        Assert.assertEquals(1, nokia.get("count").asLong());
+        Assert.assertEquals(200.0, nokia.get("averagePrice").asDouble(), 0);
+        Assert.assertEquals(2, getStats("/products/stats").get("count").asLong());
+    }
+
+    @Test
+    public void testReconciliationRepairsDriftUnderSteadyWrites() throws Exception {
+        productDao.createProduct(Product.builder()
+                .id(UUID.randomUUID())
+                .version(1)
+                .productName("Lumia")
+                .manufacturer("Nokia")
+                .price(200.0)
+                .build());
+
+        AtomicBoolean writing = new AtomicBoolean(true);
+        Thread writer = new Thread(() -> {
+            while (writing.get())
+                productService.createProduct("Galaxy Phone", "Samsung", 800.0);
+        });
+        writer.start();
+
+        try {
+            for (int i = 0; i < 5; i++)
+                productStatistics.reconcile();
+        } finally {
+            writing.set(false);
+            writer.join();
+        }
+
+        Assert.assertTrue(productStatistics.reconcile());
+        Assert.assertEquals(1, getStats("/products/stats?manufacturer=Nokia").get("count").asLong());
+    }
+
+    private JsonNode getStats(String uri) throws Exception {
+        return mapper.readTree(mvc.perform(MockMvcRequestBuilders.get(uri))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andReturn().getResponse().getContentAsString());
+    }
+}
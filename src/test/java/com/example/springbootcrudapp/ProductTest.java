@@ -0,0 +1,53 @@
+package com.example.springbootcrudapp;
+
+import com.example.springbootcrudapp.model.Product;
+import com.example.springbootcrudapp.model.ProductSearch;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ProductTest {
+    @Test
+    public void testPriceIsKeptInMinorUnits() {
+        Product product = Product.builder().price(100.50).build();
+
+        Assert.assertEquals(10050, product.getPriceMinor());
+        Assert.assertEquals(100.50, product.getPrice(), 0);
+
+        product.setPrice(0.29);
+        Assert.assertEquals(29, product.getPriceMinor());
+        Assert.assertEquals(0.29, product.getPrice(), 0);
+
+        product.setPrice(null);
+        Assert.assertNull(product.getPrice());
+        Assert.assertNull(new Product().getPrice());
+    }
+
+    @Test
+    public void testSearchBoundsRoundInward() {
+        ProductSearch search = ProductSearch.builder().minPrice(1.101).maxPrice(2.109).build();
+
+        Assert.assertEquals(111, (long) search.getMinPriceMinor());
+        Assert.assertEquals(210, (long) search.getMaxPriceMinor());
+        Assert.assertNull(ProductSearch.builder().build().getMinPriceMinor());
+    }
+
+    @Test
+    public void testUnrepresentablePricesAreRejected() {
+        for (double price : new double[]{Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, 1e20}) {
+            assertRejected(() -> Product.builder().price(price));
+            assertRejected(() -> new Product().setPrice(price));
+            assertRejected(() -> ProductSearch.builder().minPrice(price).build().getMinPriceMinor());
+        }
+
+        Assert.assertEquals(9_000_000_000_000_000_000L, Product.builder().price(9e16).build().getPriceMinor());
+    }
+
+    private static void assertRejected(Runnable conversion) {
+        try {
+            conversion.run();
+            Assert.fail();
+        } catch (ArithmeticException e) {
+            Assert.assertNotNull(e.getMessage());
+        }
+    }
+}
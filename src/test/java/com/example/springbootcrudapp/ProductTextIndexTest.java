@@ -0,0 +1,88 @@
+package com.example.springbootcrudapp;
+
+import com.example.springbootcrudapp.model.Product;
+import com.example.springbootcrudapp.search.ProductTextIndex;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+public class ProductTextIndexTest {
+    private final ProductTextIndex productTextIndex = new ProductTextIndex();
+
+    @Test
+    public void testMatchingTermsRankFirst() {
+        Product phone = createProduct("Galaxy Phone", "Samsung");
+        Product tablet = createProduct("Galaxy Tablet", "Samsung");
+        Product laptop = createProduct("ThinkPad Laptop", "Lenovo");
+
+        List.of(phone, tablet, laptop).forEach(productTextIndex::put);
+
+        Assert.assertEquals(List.of(phone.getId(), tablet.getId()), productTextIndex.search("samsung phone", 10));
+        Assert.assertEquals(List.of(laptop.getId()), productTextIndex.search("lenovo", 10));
+        Assert.assertEquals(List.of(phone.getId()), productTextIndex.search("samsung", 1));
+    }
+
+    @Test
+    public void testTyposAndPrefixesMatch() {
+        Product laptop = createProduct("ThinkPad Laptop", "Lenovo");
+        productTextIndex.put(laptop);
+        productTextIndex.put(createProduct("Coffee Grinder", "Bosch"));
+
+        Assert.assertEquals(List.of(laptop.getId()), productTextIndex.search("thnikpad", 10));
+        Assert.assertEquals(List.of(laptop.getId()), productTextIndex.search("lapt", 10));
+        Assert.assertEquals(List.of(), productTextIndex.search("refrigerator", 10));
+    }
+
+    @Test
+    public void testUpdateAndRemoveAreReflected() {
+        Product product = createProduct("Galaxy Phone", "Samsung");
+        productTextIndex.put(product);
+        productTextIndex.put(product.toBuilder().productName("Pixel Phone").manufacturer("Google").build());
+
+        Assert.assertEquals(List.of(), productTextIndex.search("samsung", 10));
+        Assert.assertEquals(List.of(product.getId()), productTextIndex.search("pixel", 10));
+
+        productTextIndex.remove(product.getId());
+
+        Assert.assertEquals(List.of(), productTextIndex.search("pixel", 10));
+        Assert.assertEquals(0, productTextIndex.size());
+    }
+
+    @Test
+    public void testOlderVersionIsIgnored() {
+        Product product = createProduct("Galaxy Phone", "Samsung");
+        productTextIndex.put(product.toBuilder().version(3L).productName("Pixel Phone").build());
+        productTextIndex.put(product.toBuilder().version(2L).build());
+
+        Assert.assertEquals(List.of(), productTextIndex.search("galaxy", 10));
+        Assert.assertEquals(List.of(product.getId()), productTextIndex.search("pixel", 10));
+    }
+
+    @Test
+    public void testCompactionKeepsLiveProducts() {
+        Product kept = createProduct("Galaxy Phone", "Samsung");
+        productTextIndex.put(kept);
+
+        for (int i = 0; i < 5000; i++) {
+            Product product = createProduct("Temporary " + i, "Acme");
+            productTextIndex.put(product);
+            productTextIndex.remove(product.getId());
+        }
+
+        Assert.assertEquals(1, productTextIndex.size());
+        Assert.assertEquals(List.of(kept.getId()), productTextIndex.search("galaxy", 10));
+        Assert.assertEquals(List.of(), productTextIndex.search("temporary", 10));
+    }
+
+    private static Product createProduct(String productName, String manufacturer) {
+        return Product.builder()
+                .id(UUID.randomUUID())
+                .version(1L)
+                .productName(productName)
+                .manufacturer(manufacturer)
+                .price(100.50)
+                .build();
+    }
+}
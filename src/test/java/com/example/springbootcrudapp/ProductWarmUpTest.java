@@ -0,0 +1,43 @@
+package com.example.springbootcrudapp;
+
+import com.example.springbootcrudapp.cache.ProductCache;
+import com.example.springbootcrudapp.model.Product;
+import com.example.springbootcrudapp.repository.ProductWarmUp;
+import com.example.springbootcrudapp.service.ProductService;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.Optional;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles("persistent")
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:file:${java.io.tmpdir}/product-warm-up-test-${random.uuid}/products" +
+        ";CACHE_SIZE=65536;WRITE_DELAY=100;PAGE_SIZE=16384;DB_CLOSE_ON_EXIT=FALSE")
+public class ProductWarmUpTest {
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private ProductWarmUp productWarmUp;
+
+    @Test
+    public void testRecentlyChangedProductsAreCached() {
+        Product first = productService.createProduct("Galaxy Phone", "Samsung", 799.0);
+        Product second = productService.createProduct("Pixel Phone", "Google", 699.0);
+        productCache.invalidateAll();
+
+        Assert.assertEquals(2, productWarmUp.run());
+        Assert.assertEquals(first, productCache.get(first.getId(), id -> Optional.empty()).orElseThrow());
+        Assert.assertEquals(second, productCache.get(second.getId(), id -> Optional.empty()).orElseThrow());
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.springbootcrudapp;
+
+import com.example.springbootcrudapp.model.Product;
+import com.example.springbootcrudapp.writebehind.ProductUpdateJournal;
+import com.example.springbootcrudapp.writebehind.ProductWriteBehindQueue;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:product-write-behind-test",
+        "product.write-behind.enabled=true",
+        "product.write-behind.flush-interval=1h",
+        "product.write-behind.sync-journal=false",
+        "product.write-behind.journal-directory=${java.io.tmpdir}/product-write-behind-test-${random.uuid}"
+})
+public class ProductWriteBehindTest {
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ProductWriteBehindQueue productWriteBehindQueue;
+
+    @Test
+    public void testAsyncUpdatesAreCoalescedIntoOneWrite() throws Exception {
+        MockHttpServletResponse created = mvc.perform(MockMvcRequestBuilders
+                .post("/products")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(createProduct(null, 100.50)))).andReturn().getResponse();
+        Product product = mapper.readValue(created.getContentAsString(), Product.class);
+
+        for (double price : new double[]{101.00, 102.25}) {
+            MockHttpServletResponse response = mvc.perform(MockMvcRequestBuilders
+                    .put("/products/" + product.getId())
+                    .header("Prefer", "respond-async")
+                    .header("If-Match", "\"1\"")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(createProduct(null, price)))).andReturn().getResponse();
+
+            Assert.assertEquals(202, response.getStatus());
+            Assert.assertEquals("respond-async", response.getHeader("Preference-Applied"));
+        }
+
+        Assert.assertEquals(1, productWriteBehindQueue.pendingUpdates());
+        productWriteBehindQueue.flush();
+
+        Product stored = mapper.readValue(mvc.perform(MockMvcRequestBuilders.get("/products/" + product.getId()))
+                .andReturn().getResponse().getContentAsString(), Product.class);
+
+        Assert.assertEquals(2, stored.getVersion());
+        Assert.assertEquals(102.25, stored.getPrice(), 0);
+        Assert.assertEquals(2, meterRegistry.get("product.write-behind.accepted").counter().count(), 0);
+        Assert.assertEquals(1, meterRegistry.get("product.write-behind.written").tag("status", "updated").counter().count(), 0);
+        Assert.assertEquals(2, meterRegistry.get("product.write-behind.coalescing.ratio").gauge().value(), 0);
+    }
+
+    @Test
+    public void testJournalRecoversUpdatesUpToATornRecord() throws Exception {
+        Path directory = temporaryFolder.getRoot().toPath();
+        Product first = createProduct(UUID.randomUUID(), 1.25);
+        Product second = createProduct(UUID.randomUUID(), 2.50);
+
+        try (ProductUpdateJournal journal = new ProductUpdateJournal(directory, true)) {
+            journal.append(first);
+            journal.append(second);
+        }
+
+        Path segment = Files.list(directory).findFirst().orElseThrow();
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.setLength(file.length() - 1);
+        }
+
+        try (ProductUpdateJournal journal = new ProductUpdateJournal(directory, true)) {
+            Assert.assertEquals(List.of(first), journal.recover());
+
+            journal.deleteThrough(journal.rotate());
+            Assert.assertEquals(List.of(), journal.recover());
+        }
+    }
+
+    private static Product createProduct(UUID id, double price) {
+        return Product.builder()
+                .id(id)
+                .version(1L)
+                .productName("testProduct")
+                .manufacturer("testManufacturer")
+                .price(price)
+                .build();
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.springbootcrudapp;
+
+import com.example.springbootcrudapp.repository.SingleFlight;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+public class SingleFlightTest {
+    private static final int FOLLOWERS = 4;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>("test", meterRegistry);
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testConcurrentCallsShareOneQuery() throws Exception {
+        AtomicInteger queries = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<String>> calls = startCalls("key", () -> {
+            queries.incrementAndGet();
+            await(release);
+            return "value";
+        });
+        release.countDown();
+
+        for (Future<String> call : calls)
+            Assert.assertEquals("value", call.get(10, TimeUnit.SECONDS));
+
+        Assert.assertEquals(1, queries.get());
+        Assert.assertEquals(1, calls("leader"), 0);
+        Assert.assertEquals(FOLLOWERS, calls("follower"), 0);
+
+        Assert.assertEquals("again", singleFlight.execute("key", () -> "again"));
+        Assert.assertEquals(2, calls("leader"), 0);
+    }
+
+    @Test
+    public void testFollowersShareTheFailure() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<String>> calls = startCalls("key", () -> {
+            await(release);
+            throw new IllegalStateException("Query failed");
+        });
+        release.countDown();
+
+        for (Future<String> call : calls) {
+            try {
+                call.get(10, TimeUnit.SECONDS);
+                Assert.fail();
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+                Assert.assertEquals("Query failed", e.getCause().getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void testDifferentKeysDoNotShare() {
+        Assert.assertEquals("a", singleFlight.execute("a", () -> singleFlight.execute("b", () -> "b").replace("b", "a")));
+        Assert.assertEquals(2, calls("leader"), 0);
+        Assert.assertEquals(0, calls("follower"), 0);
+    }
+
+    /**
+     * Starts a leader blocked in the query, then followers, and returns once every follower is waiting for it.
+     */
+    private List<Future<String>> startCalls(String key, Supplier<String> query) throws InterruptedException {
+        List<Future<String>> calls = new ArrayList<>();
+        CountDownLatch started = new CountDownLatch(1);
+
+        calls.add(executor.submit(() -> singleFlight.execute(key, () -> {
+            started.countDown();
+            return query.get();
+        })));
+        Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        for (int i = 0; i < FOLLOWERS; i++)
+            calls.add(executor.submit(() -> singleFlight.execute(key, query)));
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (calls("follower") < FOLLOWERS && System.nanoTime() < deadline)
+            Thread.sleep(10);
+
+        return calls;
+    }
+
+    private double calls(String role) {
+        return meterRegistry.counter("product.repository.single.flight", "operation", "test", "role", role).count();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}